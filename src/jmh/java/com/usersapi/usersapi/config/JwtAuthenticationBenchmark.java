@@ -0,0 +1,114 @@
+package com.usersapi.usersapi.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.usersapi.usersapi.repository.UserRepository;
+import com.usersapi.usersapi.security.RoleAuthoritiesResolver;
+import com.usersapi.usersapi.service.UserIdentityCache;
+import com.usersapi.usersapi.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * jwtDecoder() + conversor de authorities de SecurityConfig sobre tokens con la forma de Supabase.
+ * "repeated" reutiliza un pequeño conjunto de tokens (camino caliente con caché);
+ * "unique" presenta siempre un token distinto (verificación HMAC completa).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtAuthenticationBenchmark {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+    private static final int UNIQUE_TOKENS = 200_000;
+
+    private JwtDecoder decoder;
+    private JwtAuthenticationConverter converter;
+    private String[] repeatedTokens;
+    private String[] uniqueTokens;
+    private int repeatedCursor;
+    private int uniqueCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SecurityConfig config = new SecurityConfig();
+        ReflectionTestUtils.setField(config, "supabaseJwtSecret", SECRET);
+        ReflectionTestUtils.setField(config, "jwtCacheMaxSize", 10_000L);
+        decoder = config.jwtDecoder(registry);
+        // Sin usuarios en userdrimsoft: cada sub queda en la caché negativa tras la primera consulta
+        UserIdentityCache identityCache = new UserIdentityCache(10_000, Duration.ofMinutes(10), registry);
+        UserService userService = new UserService(Mockito.mock(UserRepository.class), null, identityCache,
+                event -> { });
+        RoleAuthoritiesResolver roleResolver = new RoleAuthoritiesResolver(userService, identityCache,
+                UNIQUE_TOKENS, Duration.ofMinutes(1), registry);
+        converter = config.jwtAuthenticationConverter(registry, roleResolver);
+
+        repeatedTokens = new String[16];
+        for (int i = 0; i < repeatedTokens.length; i++) {
+            repeatedTokens[i] = supabaseToken();
+        }
+        uniqueTokens = new String[UNIQUE_TOKENS];
+        for (int i = 0; i < uniqueTokens.length; i++) {
+            uniqueTokens[i] = supabaseToken();
+        }
+    }
+
+    @Benchmark
+    public void repeatedToken(Blackhole bh) {
+        String token = repeatedTokens[repeatedCursor++ & (repeatedTokens.length - 1)];
+        Jwt jwt = decoder.decode(token);
+        bh.consume(converter.convert(jwt));
+    }
+
+    @Benchmark
+    public void uniqueToken(Blackhole bh) {
+        String token = uniqueTokens[uniqueCursor++ % uniqueTokens.length];
+        Jwt jwt = decoder.decode(token);
+        bh.consume(converter.convert(jwt));
+    }
+
+    static String supabaseToken() throws Exception {
+        Instant now = Instant.now();
+        UUID sub = UUID.randomUUID();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer("https://project.supabase.co/auth/v1")
+                .subject(sub.toString())
+                .audience("authenticated")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(3600)))
+                .claim("email", "agent-" + sub + "@drimsoft.com")
+                .claim("phone", "")
+                .claim("role", "authenticated")
+                .claim("aal", "aal1")
+                .claim("amr", List.of(Map.of("method", "password", "timestamp", now.getEpochSecond())))
+                .claim("session_id", UUID.randomUUID().toString())
+                .claim("is_anonymous", false)
+                .claim("app_metadata", Map.of("provider", "email", "providers", List.of("email")))
+                .claim("user_metadata", Map.of("email_verified", true, "name", "Agent", "full_name", "Agent Drimsoft"))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(SECRET));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,71 @@
+package com.usersapi.usersapi.controller;
+
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.model.TicketStatus;
+import com.usersapi.usersapi.model.TicketSupport;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * TicketSupportController.toResponse sobre listas grandes, tal como lo usa GET /tickets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TicketResponseBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private TicketSupportController controller;
+    private List<TicketSupport> tickets;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = new TicketSupportController(null, null, null, null, null, null, null);
+
+        List<TicketStatus> statuses = new ArrayList<>();
+        String[] names = {"PENDING", "IN_PROGRESS", "ANSWERED", "CLOSED"};
+        for (int i = 0; i < names.length; i++) {
+            TicketStatus status = new TicketStatus();
+            status.setIdTicketStatus(i + 1);
+            status.setName(names[i]);
+            statuses.add(status);
+        }
+        List<UserDrimsoft> agents = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UserDrimsoft agent = new UserDrimsoft();
+            agent.setIdUser(i + 1);
+            agent.setName("Agent " + i);
+            agents.add(agent);
+        }
+
+        tickets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            TicketSupport t = new TicketSupport();
+            t.setIdTickets(i + 1);
+            t.setIdPlanifikaUser(1000 + (i % 500));
+            t.setTitle("No puedo acceder al proyecto " + i);
+            t.setDescription("Al abrir el tablero aparece un error 500 desde esta mañana. Ticket " + i);
+            t.setStatus(statuses.get(i % statuses.size()));
+            if (i % 3 != 0) {
+                t.setDrimsoftUser(agents.get(i % agents.size()));
+                t.setAnswer("Revisado, se reinició el servicio de tableros.");
+            }
+            tickets.add(t);
+        }
+    }
+
+    @Benchmark
+    public List<TicketResponse> toResponseList() {
+        return tickets.stream().map(controller::toResponse).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,87 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.model.Role;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthService.addRoleInformation sobre respuestas típicas de Supabase
+ * (login con { "user": {...} } y /auth/v1/user plano), con la identidad ya en caché.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RoleInformationBenchmark {
+
+    private AuthService authService;
+    private Map<String, Object> tokenResponse;
+    private Map<String, Object> userResponse;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserIdentityCache identityCache = new UserIdentityCache(10_000, Duration.ofHours(1), new SimpleMeterRegistry());
+        UserService userService = new UserService(null, null, identityCache, event -> { });
+
+        UUID supabaseId = UUID.randomUUID();
+        Role role = new Role();
+        role.setIdRole(2);
+        role.setName("SUPPORT");
+        UserDrimsoft user = new UserDrimsoft();
+        user.setIdUser(42);
+        user.setName("Agent Drimsoft");
+        user.setRole(role);
+        user.setSupabaseUserId(supabaseId);
+        identityCache.put(user);
+
+        authService = new AuthService(true, null, null, userService, null, null);
+
+        userResponse = supabaseUser(supabaseId);
+        tokenResponse = new HashMap<>();
+        tokenResponse.put("access_token", "eyJhbGciOiJIUzI1NiIsInR5cCI6IkpXVCJ9.payload.signature");
+        tokenResponse.put("token_type", "bearer");
+        tokenResponse.put("expires_in", 3600);
+        tokenResponse.put("expires_at", 1_900_000_000L);
+        tokenResponse.put("refresh_token", "v1.refresh-token");
+        tokenResponse.put("user", userResponse);
+    }
+
+    @Benchmark
+    public Map loginResponse() {
+        return authService.addRoleInformation(tokenResponse);
+    }
+
+    @Benchmark
+    public Map userResponse() {
+        return authService.addRoleInformation(userResponse);
+    }
+
+    private static Map<String, Object> supabaseUser(UUID id) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", id.toString());
+        user.put("aud", "authenticated");
+        user.put("role", "authenticated");
+        user.put("email", "agent@drimsoft.com");
+        user.put("email_confirmed_at", "2025-01-10T12:00:00Z");
+        user.put("phone", "");
+        user.put("confirmed_at", "2025-01-10T12:00:00Z");
+        user.put("last_sign_in_at", "2025-06-01T08:00:00Z");
+        user.put("app_metadata", Map.of("provider", "email", "providers", List.of("email")));
+        user.put("user_metadata", Map.of("email_verified", true, "name", "Agent", "full_name", "Agent Drimsoft"));
+        user.put("identities", List.of(Map.of("provider", "email", "identity_id", UUID.randomUUID().toString())));
+        user.put("created_at", "2025-01-10T12:00:00Z");
+        user.put("updated_at", "2025-06-01T08:00:00Z");
+        user.put("is_anonymous", false);
+        return user;
+    }
+}
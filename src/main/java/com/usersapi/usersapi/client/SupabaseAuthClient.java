@@ -0,0 +1,192 @@
+package com.usersapi.usersapi.client;
+
+import com.usersapi.usersapi.exception.SupabaseUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.netty.channel.ConnectTimeoutException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cliente de Supabase Auth. Todas las llamadas pasan por el mismo pool de conexiones,
+ * tienen un plazo máximo por operación, un bulkhead de llamadas en curso y un circuit
+ * breaker; cuando alguno corta la llamada se emite {@link SupabaseUnavailableException}.
+ */
+@Component
+public class SupabaseAuthClient {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> JSON_MAP =
+            new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration signUpTimeout;
+    private final Duration signInTimeout;
+    private final Duration getUserTimeout;
+    private final Duration updateUserTimeout;
+    private final Duration adminTimeout;
+    private final String serviceKey;
+
+    public SupabaseAuthClient(@Qualifier("supabaseWebClient") WebClient webClient,
+                              @Qualifier("supabaseCircuitBreaker") CircuitBreaker circuitBreaker,
+                              @Qualifier("supabaseBulkhead") Bulkhead bulkhead,
+                              @Value("${supabase.client.timeout.sign-up:8s}") Duration signUpTimeout,
+                              @Value("${supabase.client.timeout.sign-in:5s}") Duration signInTimeout,
+                              @Value("${supabase.client.timeout.get-user:3s}") Duration getUserTimeout,
+                              @Value("${supabase.client.timeout.update-user:5s}") Duration updateUserTimeout,
+                              @Value("${supabase.client.timeout.admin:10s}") Duration adminTimeout,
+                              @Value("${supabase.service.key}") String serviceKey) {
+        this.webClient = webClient;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.signUpTimeout = signUpTimeout;
+        this.signInTimeout = signInTimeout;
+        this.getUserTimeout = getUserTimeout;
+        this.updateUserTimeout = updateUserTimeout;
+        this.adminTimeout = adminTimeout;
+        this.serviceKey = serviceKey;
+    }
+
+    /**
+     * POST /auth/v1/signup
+     */
+    public Mono<Map> signUp(String email, String password) {
+        return guarded(signUpTimeout, webClient.post()
+                .uri("/auth/v1/signup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("email", email, "password", password))
+                .retrieve()
+                .bodyToMono(Map.class));
+    }
+
+    /**
+     * POST /auth/v1/token?grant_type=password
+     */
+    public Mono<Map> signIn(String email, String password) {
+        return guarded(signInTimeout, webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/auth/v1/token")
+                        .queryParam("grant_type", "password")
+                        .build())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("email", email, "password", password))
+                .retrieve()
+                .bodyToMono(Map.class));
+    }
+
+    /**
+     * GET /auth/v1/user (Authorization: Bearer <access_token>)
+     */
+    public Mono<Map<String, Object>> getUser(String accessToken) {
+        return guarded(getUserTimeout, webClient.get()
+                .uri("/auth/v1/user")
+                .headers(h -> h.setBearerAuth(accessToken))
+                .retrieve()
+                .bodyToMono(JSON_MAP));
+    }
+
+    /**
+     * PUT /auth/v1/user (Authorization: Bearer <access_token>)
+     */
+    public Mono<Map<String, Object>> updateUser(String accessToken, Map<String, Object> payload) {
+        return guarded(updateUserTimeout, webClient.put()
+                .uri("/auth/v1/user")
+                .headers(h -> h.setBearerAuth(accessToken))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(payload)
+                .retrieve()
+                .onStatus(status -> status.is4xxClientError(), clientResponse ->
+                        clientResponse.bodyToMono(String.class)
+                                .defaultIfEmpty("[No response body]")
+                                .flatMap(errorBody -> Mono.error(new RuntimeException("Supabase Auth Update Error (" + clientResponse.statusCode() + "): " + errorBody)))
+                )
+                .bodyToMono(JSON_MAP));
+    }
+
+    /**
+     * POST /auth/v1/admin/users con la service key (usuario ya confirmado).
+     */
+    public Mono<Map<String, Object>> adminCreateUser(String email, String password, Map<String, Object> userMetadata) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("email", email);
+        body.put("password", password);
+        body.put("email_confirm", true);
+        if (userMetadata != null && !userMetadata.isEmpty()) {
+            body.put("user_metadata", userMetadata);
+        }
+        return guarded(adminTimeout, webClient.post()
+                .uri("/auth/v1/admin/users")
+                .headers(this::serviceRoleHeaders)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(JSON_MAP));
+    }
+
+    /**
+     * PUT /auth/v1/admin/users/{id} con la service key. Supabase fusiona las claves de app_metadata
+     * con las existentes, y las incluye en los JWT que emita a partir de ese momento.
+     */
+    public Mono<Map<String, Object>> adminUpdateAppMetadata(UUID userId, Map<String, Object> appMetadata) {
+        return guarded(adminTimeout, webClient.put()
+                .uri("/auth/v1/admin/users/{id}", userId)
+                .headers(this::serviceRoleHeaders)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("app_metadata", appMetadata))
+                .retrieve()
+                .bodyToMono(JSON_MAP));
+    }
+
+    private void serviceRoleHeaders(HttpHeaders headers) {
+        headers.set("apiKey", serviceKey);
+        headers.setBearerAuth(serviceKey);
+    }
+
+    // El plazo va dentro del bulkhead para liberar el permiso al vencer;
+    // el circuit breaker es la capa exterior y rechaza sin consumir permisos.
+    private <T> Mono<T> guarded(Duration timeout, Mono<T> call) {
+        return call
+                .timeout(timeout)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .onErrorMap(CallNotPermittedException.class,
+                        e -> new SupabaseUnavailableException("Supabase no disponible (circuito abierto)", e))
+                .onErrorMap(BulkheadFullException.class,
+                        e -> new SupabaseUnavailableException("Demasiadas llamadas en curso a Supabase", e))
+                .onErrorMap(TimeoutException.class,
+                        e -> new SupabaseUnavailableException("Supabase no respondió a tiempo", e))
+                .onErrorMap(SupabaseAuthClient::isConnectorTimeout,
+                        e -> new SupabaseUnavailableException("Supabase no respondió a tiempo", e));
+    }
+
+    // Los plazos de reactor-netty (responseTimeout, connect timeout) llegan como WebClientRequestException
+    // con la excepción de Netty como causa, no como TimeoutException
+    private static boolean isConnectorTimeout(Throwable e) {
+        if (!(e instanceof WebClientRequestException)) {
+            return false;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof io.netty.handler.timeout.TimeoutException || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
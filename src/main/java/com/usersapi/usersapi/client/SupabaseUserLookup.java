@@ -0,0 +1,142 @@
+package com.usersapi.usersapi.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jwt.JWTParser;
+import com.usersapi.usersapi.security.TokenDigest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * GET /auth/v1/user con single-flight: las consultas simultáneas del mismo token comparten
+ * una única llamada a Supabase. El resultado se guarda unos segundos, nunca más allá del
+ * claim exp del token. Las claves son la huella SHA-256 del token.
+ */
+@Component
+public class SupabaseUserLookup {
+
+    private final SupabaseAuthClient supabaseAuthClient;
+    private final ConcurrentMap<String, Mono<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, CachedUser> results;
+    private final Duration ttl;
+    private final Counter coalesced;
+
+    public SupabaseUserLookup(SupabaseAuthClient supabaseAuthClient,
+                              @Value("${supabase.client.user-cache.ttl:30s}") Duration ttl,
+                              @Value("${supabase.client.user-cache.max-size:10000}") long maxSize,
+                              MeterRegistry meterRegistry) {
+        this.supabaseAuthClient = supabaseAuthClient;
+        this.ttl = ttl;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        this.coalesced = Counter.builder("supabase.user.lookup.coalesced")
+                .description("Lookups served by joining an in-flight Supabase call for the same token")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "supabase.user.lookup");
+    }
+
+    public Mono<Map<String, Object>> getUser(String accessToken) {
+        return Mono.defer(() -> {
+            String key = TokenDigest.sha256(accessToken);
+            CachedUser cached = results.getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(cached.user());
+            }
+
+            Mono<Map<String, Object>> existing = inFlight.get(key);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            return inFlight.computeIfAbsent(key, k -> lookup(k, accessToken));
+        });
+    }
+
+    /**
+     * Descarta el resultado guardado para el token (p. ej. tras actualizar el perfil). También se
+     * suelta la llamada en curso: pudo empezar antes del cambio, y su doFinally puede ejecutarse
+     * después de que el llamante ya recibiera el valor.
+     */
+    public void invalidate(String accessToken) {
+        String key = TokenDigest.sha256(accessToken);
+        inFlight.remove(key);
+        results.invalidate(key);
+    }
+
+    private Mono<Map<String, Object>> lookup(String key, String accessToken) {
+        AtomicReference<Mono<Map<String, Object>>> self = new AtomicReference<>();
+        Mono<Map<String, Object>> shared = supabaseAuthClient.getUser(accessToken)
+                .map(Collections::unmodifiableMap)
+                // Una llamada soltada por invalidate no repuebla la caché con un resultado viejo
+                .doOnNext(user -> {
+                    if (inFlight.get(key) == self.get()) {
+                        remember(key, accessToken, user);
+                    }
+                })
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .cache();
+        self.set(shared);
+        return shared;
+    }
+
+    private void remember(String key, String accessToken, Map<String, Object> user) {
+        Instant expiresAt = expiration(accessToken);
+        if (expiresAt == null) {
+            return;
+        }
+        Instant cappedAt = Instant.now().plus(ttl);
+        CachedUser entry = new CachedUser(user, expiresAt.isBefore(cappedAt) ? expiresAt : cappedAt);
+        if (entry.expiresAt().isAfter(Instant.now())) {
+            results.put(key, entry);
+        }
+    }
+
+    // Solo se lee exp para acotar la caché; la firma la valida Supabase al responder
+    private static Instant expiration(String accessToken) {
+        try {
+            Date exp = JWTParser.parse(accessToken).getJWTClaimsSet().getExpirationTime();
+            return exp != null ? exp.toInstant() : null;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    private record CachedUser(Map<String, Object> user, Instant expiresAt) {
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, CachedUser> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedUser value, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedUser value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedUser value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.usersapi.usersapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class SchedulerConfig {
+
+    // Scheduler acotado para las llamadas JDBC hechas desde pipelines reactivos (AuthService).
+    // Nunca debe ejecutarse JPA en los hilos de reactor-netty: si el pool de Hikari se agota,
+    // solo se bloquean estos hilos y no las demás llamadas a Supabase en curso.
+    // Por defecto usa tantos hilos como conexiones tiene Hikari y rechaza tareas cuando la cola se llena.
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(
+            @Value("${users.jdbc-scheduler.threads:${spring.datasource.hikari.maximum-pool-size:5}}") int threads,
+            @Value("${users.jdbc-scheduler.queue-capacity:1000}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("jdbc-blocking-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        // Publica executor.* (activos, cola, completadas, tiempos) en el registro de Micrometer
+        ExecutorService monitored = ExecutorServiceMetrics.monitor(meterRegistry, executor, "jdbc.blocking");
+        return Schedulers.fromExecutorService(monitored, "jdbc-blocking");
+    }
+}
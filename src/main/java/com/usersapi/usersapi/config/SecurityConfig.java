@@ -1,16 +1,19 @@
 package com.usersapi.usersapi.config;
 
+import com.usersapi.usersapi.security.CachingAuthoritiesConverter;
+import com.usersapi.usersapi.security.CachingJwtDecoder;
+import com.usersapi.usersapi.security.ClaimAuthoritiesConverter;
+import com.usersapi.usersapi.security.RoleAuthoritiesResolver;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
-import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -18,8 +21,6 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 
 @Configuration
@@ -28,6 +29,9 @@ public class SecurityConfig {
     @Value("${supabase.jwt.secret}")
     private String supabaseJwtSecret;
 
+    @Value("${supabase.jwt.cache.max-size:10000}")
+    private long jwtCacheMaxSize;
+
     // Configuración CORS para permitir peticiones desde el frontend
     // (localhost:3000)
 
@@ -45,62 +49,58 @@ public class SecurityConfig {
         return source;
     }
 
-    // JWT Decoder para validar tokens firmados por Supabase
+    // JWT Decoder para validar tokens firmados por Supabase.
+    // Los tokens ya verificados se reutilizan hasta su exp sin repetir la verificación HMAC.
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(MeterRegistry meterRegistry) {
         byte[] secretBytes = supabaseJwtSecret.getBytes(StandardCharsets.UTF_8);
         SecretKeySpec key = new SecretKeySpec(secretBytes, "HmacSHA256");
-        return NimbusJwtDecoder.withSecretKey(key).build();
+        return new CachingJwtDecoder(NimbusJwtDecoder.withSecretKey(key).build(), jwtCacheMaxSize, meterRegistry);
     }
 
-    // Conversor de roles desde claims del JWT
-
-    private JwtAuthenticationConverter jwtAuthenticationConverter() {
-        JwtGrantedAuthoritiesConverter defaultGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
-        defaultGrantedAuthoritiesConverter.setAuthorityPrefix("ROLE_");
+    // Authorities = roles de los claims del JWT (memorizados por token) + rol de userdrimsoft,
+    // resuelto en cada petición desde la caché de identidad para reflejar cambios de rol al momento.
+    // Un usuario eliminado se queda sin ROLE_*, incluidos los de los claims.
+    // package-private para los benchmarks JMH
 
+    JwtAuthenticationConverter jwtAuthenticationConverter(MeterRegistry meterRegistry,
+                                                          RoleAuthoritiesResolver roleAuthoritiesResolver) {
+        CachingAuthoritiesConverter claimAuthorities =
+                new CachingAuthoritiesConverter(new ClaimAuthoritiesConverter(), jwtCacheMaxSize, meterRegistry);
         JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
-        converter.setJwtGrantedAuthoritiesConverter(jwt -> {
-            Collection<GrantedAuthority> authorities = new ArrayList<>();
-
-            if (jwt.getClaim("role") != null) {
-                authorities.add(new SimpleGrantedAuthority("ROLE_" + jwt.getClaimAsString("role").toUpperCase()));
-            }
-
-            if (jwt.getClaim("user_role") != null) {
-                authorities.add(new SimpleGrantedAuthority("ROLE_" + jwt.getClaimAsString("user_role").toUpperCase()));
-            }
-
-            Object rolesObj = jwt.getClaim("roles");
-            if (rolesObj instanceof List<?> roles) {
-                for (Object role : roles) {
-                    authorities.add(new SimpleGrantedAuthority("ROLE_" + role.toString().toUpperCase()));
-                }
-            }
-
-            authorities.addAll(defaultGrantedAuthoritiesConverter.convert(jwt));
-            return authorities;
-        });
-
+        converter.setJwtGrantedAuthoritiesConverter(jwt ->
+                roleAuthoritiesResolver.resolve(jwt, claimAuthorities.convert(jwt)));
         return converter;
     }
 
     // Filtro de seguridad principal
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, MeterRegistry meterRegistry,
+                                           RoleAuthoritiesResolver roleAuthoritiesResolver) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/v1/public/**", "/auth/**", "/actuator/**", "/api/v1/actuator/**")
                         .permitAll()
+                        // Volcado completo de la tabla: no entra en el acceso abierto a /tickets/**
+                        .requestMatchers(HttpMethod.GET, "/tickets/export", "/users/export").hasRole("ADMIN")
                         .requestMatchers("/tickets/**", "/ticket-status/**").permitAll()
+                        // El alta masiva usa la service key de Supabase y fija idrole (= ROLE_*)
+                        .requestMatchers(HttpMethod.POST, "/users/bulk").hasRole("ADMIN")
+                        // Rol y estado conceden o retiran ROLE_* al momento: altas, cambios de rol o de
+                        // estado y la eliminación lógica solo para ADMIN
+                        .requestMatchers(HttpMethod.POST, "/users").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PATCH, "/users/*/roles/*").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PUT, "/users/*", "/users/*/status/*").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.DELETE, "/users/*").hasRole("ADMIN")
                         .requestMatchers("/users/**", "/roles/**", "/user-status/**").authenticated()
-                        .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/admin/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/reference-data/refresh").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter())));
+                        .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter(meterRegistry, roleAuthoritiesResolver))));
 
         return http.build();
     }
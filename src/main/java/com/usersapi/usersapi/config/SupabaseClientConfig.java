@@ -0,0 +1,121 @@
+package com.usersapi.usersapi.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+@Configuration
+public class SupabaseClientConfig {
+
+    // Pool de conexiones dedicado a Supabase (métricas reactor.netty.connection.provider.*)
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider supabaseConnectionProvider(
+            @Value("${supabase.client.pool.max-connections:50}") int maxConnections,
+            @Value("${supabase.client.pool.pending-acquire-max:100}") int pendingAcquireMax,
+            @Value("${supabase.client.pool.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${supabase.client.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${supabase.client.pool.max-life-time:5m}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("supabase")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMax)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient supabaseWebClient(
+            @Value("${supabase.url}") String supabaseUrl,
+            @Value("${supabase.anon.key}") String anonKey,
+            @Value("${supabase.client.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${supabase.client.response-timeout:10s}") Duration responseTimeout,
+            @Qualifier("supabaseConnectionProvider") ConnectionProvider connectionProvider,
+            WebClient.Builder webClientBuilder) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(responseTimeout);
+
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .baseUrl(supabaseUrl)
+                .defaultHeader("apiKey", anonKey)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + anonKey)
+                .build();
+    }
+
+    // Abre el circuito si falla (5xx, timeout, error de conexión) un porcentaje de las últimas llamadas.
+    // Los 4xx (credenciales inválidas, token expirado) son respuestas válidas de un Supabase sano.
+
+    @Bean
+    public CircuitBreaker supabaseCircuitBreaker(
+            @Value("${supabase.client.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${supabase.client.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${supabase.client.circuit-breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${supabase.client.circuit-breaker.wait-in-open-state:15s}") Duration waitInOpenState,
+            MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(waitInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(5)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .recordException(SupabaseClientConfig::isSupabaseFailure)
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker("supabase");
+    }
+
+    // Limita las llamadas simultáneas a Supabase; el exceso falla de inmediato en vez de encolarse
+
+    @Bean
+    public Bulkhead supabaseBulkhead(
+            @Value("${supabase.client.bulkhead.max-concurrent-calls:100}") int maxConcurrentCalls,
+            @Value("${supabase.client.bulkhead.max-wait:0ms}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+        BulkheadConfig config = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build();
+
+        BulkheadRegistry registry = BulkheadRegistry.of(config);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead("supabase");
+    }
+
+    private static boolean isSupabaseFailure(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().is5xxServerError();
+        }
+        return e instanceof TimeoutException || e instanceof WebClientRequestException;
+    }
+}
@@ -0,0 +1,26 @@
+package com.usersapi.usersapi.controller;
+
+import com.usersapi.usersapi.dto.RoleSyncSummary;
+import com.usersapi.usersapi.service.SupabaseRoleSync;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+// Operaciones de mantenimiento; SecurityConfig exige ROLE_ADMIN en /admin/** (bajo el context-path /api/v1)
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final SupabaseRoleSync supabaseRoleSync;
+
+    public AdminController(SupabaseRoleSync supabaseRoleSync) {
+        this.supabaseRoleSync = supabaseRoleSync;
+    }
+
+    // Replica en Supabase (app_metadata.role) el rol de todos los usuarios existentes
+    @PostMapping("/roles/sync")
+    public Mono<RoleSyncSummary> syncRoles() {
+        return supabaseRoleSync.backfill();
+    }
+}
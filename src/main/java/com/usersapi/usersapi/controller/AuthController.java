@@ -1,12 +1,19 @@
 package com.usersapi.usersapi.controller;
 
+import com.usersapi.usersapi.exception.SupabaseUnavailableException;
 import com.usersapi.usersapi.model.UserDrimsoft;
 import com.usersapi.usersapi.service.AuthService;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.transaction.TransactionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/auth")
@@ -23,7 +30,7 @@ public class AuthController {
         String password = body.get("password");
         return authService.signUp(email, password)
                 .map(resp -> ResponseEntity.ok(resp))
-                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of("error", e.getMessage()))));
+                .onErrorResume(e -> error(HttpStatus.BAD_REQUEST, e));
     }
 
     @PostMapping("/login")
@@ -32,13 +39,15 @@ public class AuthController {
         String password = body.get("password");
         return authService.signIn(email, password)
                 .map(resp -> ResponseEntity.ok(resp))
-                .onErrorResume(e -> Mono.just(ResponseEntity.status(401).body(Map.of("error", e.getMessage()))));
+                .onErrorResume(e -> error(HttpStatus.UNAUTHORIZED, e));
     }
 
     @GetMapping("/me")
     public Mono<ResponseEntity<Map>> me(@RequestHeader("Authorization") String authorization) {
         String token = authorization.replaceFirst("Bearer ", "");
-        return authService.getUser(token).map(ResponseEntity::ok);
+        return authService.getUser(token)
+                .map(resp -> ResponseEntity.ok(resp))
+                .onErrorResume(e -> error(invalidToken(e) ? HttpStatus.UNAUTHORIZED : HttpStatus.INTERNAL_SERVER_ERROR, e));
     }
 
     @PatchMapping("/update-profile")
@@ -52,8 +61,29 @@ public class AuthController {
 
         return authService.updateProfile(token, name, password)
                 .map(ResponseEntity::ok)
-                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(Map.of(
-                        "error", e.getMessage()
-                ))));
+                .onErrorResume(e -> error(HttpStatus.BAD_REQUEST, e));
+    }
+
+    // Solo un token que no supera la validación (local o en Supabase) es un 401
+    private static boolean invalidToken(Throwable e) {
+        return e instanceof JwtException
+                || e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError();
+    }
+
+    // Supabase, el scheduler JDBC o la base de datos caídos o saturados -> 503 inmediato; el resto
+    // conserva el código de cada endpoint
+    private static boolean unavailable(Throwable e) {
+        return e instanceof SupabaseUnavailableException
+                || e instanceof RejectedExecutionException
+                || e instanceof DataAccessException
+                || e instanceof TransactionException;
+    }
+
+    private static <T> Mono<ResponseEntity<T>> error(HttpStatus status, Throwable e) {
+        HttpStatus resolved = unavailable(e) ? HttpStatus.SERVICE_UNAVAILABLE : status;
+        String message = e.getMessage() != null ? e.getMessage() : resolved.getReasonPhrase();
+        @SuppressWarnings("unchecked")
+        T body = (T) Map.of("error", message);
+        return Mono.just(ResponseEntity.status(resolved).body(body));
     }
 }
\ No newline at end of file
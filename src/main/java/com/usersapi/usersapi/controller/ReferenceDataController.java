@@ -0,0 +1,31 @@
+package com.usersapi.usersapi.controller;
+
+import com.usersapi.usersapi.service.ReferenceDataService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/reference-data")
+public class ReferenceDataController {
+
+    private final ReferenceDataService referenceDataService;
+
+    public ReferenceDataController(ReferenceDataService referenceDataService) {
+        this.referenceDataService = referenceDataService;
+    }
+
+    // Recarga roles, estados de usuario y estados de ticket tras modificarlos en la base de datos
+    @PostMapping("/refresh")
+    public ResponseEntity<Map<String, Integer>> refresh() {
+        ReferenceDataService.Snapshot snapshot = referenceDataService.refresh();
+        return ResponseEntity.ok(Map.of(
+                "roles", snapshot.roles().size(),
+                "userStatuses", snapshot.userStatuses().size(),
+                "ticketStatuses", snapshot.ticketStatuses().size()
+        ));
+    }
+}
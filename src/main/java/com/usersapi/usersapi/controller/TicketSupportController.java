@@ -1,33 +1,102 @@
 package com.usersapi.usersapi.controller;
 
+import com.usersapi.usersapi.dto.PageResponse;
 import com.usersapi.usersapi.dto.TicketAnswerRequest;
+import com.usersapi.usersapi.dto.TicketBulkRequest;
+import com.usersapi.usersapi.dto.TicketBulkResult;
 import com.usersapi.usersapi.dto.TicketCreateRequest;
+import com.usersapi.usersapi.dto.TicketIntakeResponse;
+import com.usersapi.usersapi.dto.TicketPageResponse;
 import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.dto.TicketStatsResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.exception.ResourceNotFoundException;
+import com.usersapi.usersapi.exception.TicketStatusConflictException;
+import com.usersapi.usersapi.exception.TicketVersionConflictException;
 import com.usersapi.usersapi.model.TicketSupport;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.service.ExportService;
+import com.usersapi.usersapi.service.TicketBulkService;
+import com.usersapi.usersapi.service.TicketEventHub;
+import com.usersapi.usersapi.service.TicketIntakeService;
+import com.usersapi.usersapi.service.TicketStatsService;
 import com.usersapi.usersapi.service.TicketSupportService;
+import com.usersapi.usersapi.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/tickets")
 public class TicketSupportController {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
     private final TicketSupportService ticketSupportService;
+    private final TicketBulkService ticketBulkService;
+    private final TicketEventHub ticketEventHub;
+    private final TicketStatsService ticketStatsService;
+    private final TicketIntakeService ticketIntakeService;
+    private final UserService userService;
+    private final ExportService exportService;
 
-    public TicketSupportController(TicketSupportService ticketSupportService) {
+    public TicketSupportController(TicketSupportService ticketSupportService,
+                                   TicketBulkService ticketBulkService,
+                                   TicketEventHub ticketEventHub,
+                                   TicketStatsService ticketStatsService,
+                                   TicketIntakeService ticketIntakeService,
+                                   UserService userService,
+                                   ExportService exportService) {
         this.ticketSupportService = ticketSupportService;
+        this.ticketBulkService = ticketBulkService;
+        this.ticketEventHub = ticketEventHub;
+        this.ticketStatsService = ticketStatsService;
+        this.ticketIntakeService = ticketIntakeService;
+        this.userService = userService;
+        this.exportService = exportService;
     }
 
+    // Con "Prefer: respond-async" el ticket se encola (write-behind) y se responde 202 con su referencia
     @PostMapping
-    public ResponseEntity<TicketResponse> create(@RequestBody TicketCreateRequest request) {
+    public ResponseEntity<?> create(@RequestBody TicketCreateRequest request,
+                                    @RequestHeader(value = "Prefer", required = false) String prefer) {
         if (request.getIdplanifikauser() == null || request.getTitle() == null || request.getDescription() == null) {
             return ResponseEntity.badRequest().build();
         }
 
+        if (prefer != null && prefer.toLowerCase().contains("respond-async")) {
+            return ticketIntakeService.accept(request)
+                            .<ResponseEntity<?>>map(reference -> ResponseEntity.accepted()
+                                    .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                                            .path("/tickets/intake/{reference}")
+                                            .buildAndExpand(reference)
+                                            .toUri())
+                                    .header("Preference-Applied", "respond-async")
+                                    .body(new TicketIntakeResponse(reference, TicketIntakeResponse.Status.QUEUED, null)))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, "5")
+                            .build());
+        }
+
         TicketSupport ticket = ticketSupportService.create(
                 request.getIdplanifikauser(),
                 request.getTitle(),
@@ -39,105 +108,269 @@ public class TicketSupportController {
         return ResponseEntity.ok(toResponse(ticket));
     }
 
+    // Estado de un alta asíncrona: 202 mientras sigue en cola, 200 con idtickets cuando ya se insertó
+    // (o con FAILED si acabó en el dead-letter)
+    @GetMapping("/intake/{reference}")
+    public ResponseEntity<TicketIntakeResponse> intakeStatus(@PathVariable UUID reference) {
+        return ticketIntakeService.status(reference)
+                .map(status -> status.getStatus() == TicketIntakeResponse.Status.QUEUED
+                        ? ResponseEntity.accepted().body(status)
+                        : ResponseEntity.ok(status))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Estado, asignación o respuesta sobre muchos tickets en una transacción; un resultado por id
+    @PostMapping("/bulk")
+    public ResponseEntity<List<TicketBulkResult>> bulk(@RequestBody TicketBulkRequest request) {
+        try {
+            return ResponseEntity.ok(ticketBulkService.apply(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping("/bulk/create")
+    public ResponseEntity<List<TicketBulkResult>> bulkCreate(@RequestBody List<TicketCreateRequest> requests) {
+        try {
+            return ResponseEntity.ok(ticketBulkService.create(requests));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Cola de trabajo: asigna al agente el ticket PENDING más antiguo y lo pasa a IN_PROGRESS.
+    // Sin iddrimsoftuser el agente es el usuario del token; 204 si no queda ningún ticket libre
+    @PostMapping("/claim")
+    public ResponseEntity<TicketResponse> claim(@RequestParam(required = false) Integer iddrimsoftuser,
+                                                @RequestParam(required = false) Integer idplanifikauser,
+                                                @AuthenticationPrincipal Jwt jwt) {
+        Integer agent = iddrimsoftuser != null ? iddrimsoftuser : callerId(jwt);
+        if (agent == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ticketSupportService.claimNext(agent, idplanifikauser)
+                    .map(ticket -> ResponseEntity.ok().eTag(etag(ticket)).body(ticket))
+                    .orElseGet(() -> ResponseEntity.noContent().build());
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @GetMapping
-    public List<TicketResponse> list(
+    public ResponseEntity<TicketPageResponse> list(
             @RequestParam(required = false) Integer idplanifikauser,
-            @RequestParam(required = false) Integer iddrimsoftuser
+            @RequestParam(required = false) Integer iddrimsoftuser,
+            @RequestParam(required = false) Integer idticketstatus,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
+    ) {
+        Integer afterId;
+        try {
+            afterId = decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // Se pide un elemento extra para saber si existe una página siguiente sin un COUNT
+        List<TicketResponse> items = ticketSupportService.findPage(
+                idticketstatus, iddrimsoftuser, idplanifikauser, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = encodeCursor(items.get(pageSize - 1).getIdtickets());
+        }
+        return ResponseEntity.ok()
+                .eTag(listEtag(items, nextCursor))
+                .body(new TicketPageResponse(items, nextCursor, pageSize));
+    }
+
+    // Exportación completa en streaming (NDJSON por defecto; format=csv o Accept: text/csv para CSV),
+    // en orden de idtickets. 503 si ya hay users.export.max-concurrent en curso
+    @GetMapping("/export")
+    public void export(
+            @RequestParam(required = false) Integer idplanifikauser,
+            @RequestParam(required = false) Integer iddrimsoftuser,
+            @RequestParam(required = false) Integer idticketstatus,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
+    ) throws IOException {
+        exportService.export(format, accept, "tickets", response, (resolved, out) ->
+                exportService.exportTickets(idticketstatus, iddrimsoftuser, idplanifikauser, resolved, out));
+    }
+
+    // Cambios de tickets en vivo; al reconectar, el navegador envía Last-Event-ID y se reenvía lo perdido
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TicketChangedEvent>> stream(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) Integer iddrimsoftuser,
+            @RequestParam(required = false) Integer idplanifikauser
+    ) {
+        return ticketEventHub.subscribe(lastEventId, iddrimsoftuser, idplanifikauser);
+    }
+
+    // Recuentos en memoria: no consulta la tabla de tickets
+    @GetMapping("/stats")
+    public TicketStatsResponse stats() {
+        return ticketStatsService.stats();
+    }
+
+    // Búsqueda full-text sobre título, descripción y respuesta, ordenada por relevancia
+    @GetMapping("/search")
+    public ResponseEntity<PageResponse<TicketResponse>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer idticketstatus,
+            @RequestParam(required = false) Integer iddrimsoftuser,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size
     ) {
-        List<TicketSupport> list;
-        if (idplanifikauser != null) {
-            list = ticketSupportService.findByPlanifikaUser(idplanifikauser);
-        } else if (iddrimsoftuser != null) {
-            list = ticketSupportService.findByDrimsoftUser(iddrimsoftuser);
-        } else {
-            list = ticketSupportService.findAll();
+        if (q.isBlank() || page < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(ticketSupportService.search(q, idticketstatus, iddrimsoftuser, page, pageSize));
+    }
+
+    // El cursor es opaco para el cliente: base64url del último idtickets devuelto
+    static String encodeCursor(Integer lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(lastId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Integer decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
         }
-        return list.stream().map(this::toResponse).collect(Collectors.toList());
     }
 
+    // ETag fuerte = versión del ticket; con If-None-Match coincidente Spring responde 304 sin cuerpo
     @GetMapping("/{id}")
     public ResponseEntity<TicketResponse> getById(@PathVariable Integer id) {
-        return ticketSupportService.findById(id)
-                .map(t -> ResponseEntity.ok(toResponse(t)))
+        return ticketSupportService.findResponseById(id)
+                .map(t -> ResponseEntity.ok().eTag(etag(t)).body(t))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // expectedStatus (opcional): la transición solo se aplica si el ticket sigue en ese estado.
+    // If-Match (opcional): la transición solo se aplica si el ticket sigue en esa versión (412 si no).
     @PatchMapping("/{id}/answer")
     public ResponseEntity<TicketResponse> addAnswer(
             @PathVariable Integer id,
+            @RequestParam(required = false) Integer expectedStatus,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody TicketAnswerRequest request) {
-        try {
-            if (request.getAnswer() == null || request.getAnswer().isBlank()) {
-                return ResponseEntity.badRequest().build();
-            }
-
-            TicketSupport ticket = ticketSupportService.updateAnswer(
-                    id,
-                    request.getAnswer(),
-                    request.getIddrimsoftuser()
-            );
-
-            return ResponseEntity.ok(toResponse(ticket));
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
+        if (request.getAnswer() == null || request.getAnswer().isBlank()) {
+            return ResponseEntity.badRequest().build();
         }
+        return transition(ifMatch, version -> ticketSupportService.updateAnswer(
+                id, request.getAnswer(), request.getIddrimsoftuser(), expectedStatus, version));
     }
 
     @PatchMapping("/{id}/status/{statusId}")
     public ResponseEntity<TicketResponse> updateStatus(
             @PathVariable Integer id,
-            @PathVariable Integer statusId) {
-        try {
-            System.out.println("DEBUG Controller: Recibido request para actualizar ticket " + id + " a estado " + statusId);
-            TicketSupport ticket = ticketSupportService.updateStatus(id, statusId);
-            return ResponseEntity.ok(toResponse(ticket));
-        } catch (RuntimeException e) {
-            System.err.println("ERROR Controller: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.notFound().build();
-        }
+            @PathVariable Integer statusId,
+            @RequestParam(required = false) Integer expectedStatus,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return transition(ifMatch, version -> ticketSupportService.updateStatus(id, statusId, expectedStatus, version));
     }
 
     @PatchMapping("/{id}/assign/{userId}")
     public ResponseEntity<TicketResponse> assignUser(
             @PathVariable Integer id,
-            @PathVariable Integer userId) {
-        try {
-            TicketSupport ticket = ticketSupportService.assignUser(id, userId);
-            return ResponseEntity.ok(toResponse(ticket));
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
-        }
+            @PathVariable Integer userId,
+            @RequestParam(required = false) Integer expectedStatus,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return transition(ifMatch, version -> ticketSupportService.assignUser(id, userId, expectedStatus, version));
     }
 
     @PatchMapping("/{id}/read")
     public ResponseEntity<TicketResponse> markAsRead(
             @PathVariable Integer id,
+            @RequestParam(required = false) Integer expectedStatus,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody(required = false) Map<String, Integer> body) {
+        Integer userId = body != null ? body.get("iddrimsoftuser") : null;
+        return transition(ifMatch, version -> ticketSupportService.markAsRead(id, userId, expectedStatus, version));
+    }
+
+    private static ResponseEntity<TicketResponse> transition(String ifMatch, Function<Long, TicketResponse> call) {
+        Long expectedVersion = null;
+        if (ifMatch != null && !ifMatch.isBlank() && !ifMatch.trim().equals("*")) {
+            expectedVersion = parseVersion(ifMatch.trim());
+            if (expectedVersion == null) {
+                // Un ETag que no es una versión nuestra nunca puede coincidir
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+        }
         try {
-            Integer userId = body != null ? body.get("iddrimsoftuser") : null;
-            TicketSupport ticket = ticketSupportService.markAsRead(id, userId);
-            return ResponseEntity.ok(toResponse(ticket));
-        } catch (RuntimeException e) {
+            TicketResponse updated = call.apply(expectedVersion);
+            return ResponseEntity.ok().eTag(etag(updated)).body(updated);
+        } catch (ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (TicketStatusConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (TicketVersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         }
     }
 
-    private TicketResponse toResponse(TicketSupport t) {
-        TicketResponse r = new TicketResponse();
-        r.setIdtickets(t.getIdTickets());
-        r.setIdplanifikauser(t.getIdPlanifikaUser());
-        if (t.getStatus() != null) {
-            r.setIdticketstatus(t.getStatus().getIdTicketStatus());
-            r.setTicketstatusname(t.getStatus().getName());
+    // idUser del usuario del token (sub = UUID de Supabase), vía la caché de identidad
+    private Integer callerId(Jwt jwt) {
+        if (jwt == null || jwt.getSubject() == null) {
+            return null;
         }
-        r.setTitle(t.getTitle());
-        r.setDescription(t.getDescription());
-        r.setAnswer(t.getAnswer());
-        if (t.getDrimsoftUser() != null) {
-            r.setIddrimsoftuser(t.getDrimsoftUser().getIdUser());
-            r.setDrimsoftusername(t.getDrimsoftUser().getName());
+        try {
+            return userService.findBySupabaseUserId(UUID.fromString(jwt.getSubject()))
+                    .map(UserDrimsoft::getIdUser)
+                    .orElse(null);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-        return r;
+    }
+
+    static String etag(TicketResponse ticket) {
+        return "\"" + ticket.getVersion() + "\"";
+    }
+
+    // ETag agregado de una página: cambia si cambia cualquier (id, versión), el cursor siguiente o un
+    // nombre unido (estado, usuario), que puede renombrarse sin tocar la versión del ticket
+    static String listEtag(List<TicketResponse> items, String nextCursor) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (TicketResponse item : items) {
+                digest.update((item.getIdtickets() + ":" + item.getVersion() + "\0" + item.getTicketstatusname()
+                        + "\0" + item.getDrimsoftusername() + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(String.valueOf(nextCursor).getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static Long parseVersion(String etag) {
+        if (etag.length() < 3 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+            return null;
+        }
+        try {
+            return Long.valueOf(etag.substring(1, etag.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // package-private para los benchmarks JMH
+    TicketResponse toResponse(TicketSupport t) {
+        return TicketSupportService.toResponse(t);
     }
 }
@@ -1,25 +1,96 @@
 package com.usersapi.usersapi.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import com.usersapi.usersapi.dto.PageResponse;
+import com.usersapi.usersapi.dto.UserProvisionRequest;
+import com.usersapi.usersapi.dto.UserProvisionResult;
+import com.usersapi.usersapi.dto.UserResolveRequest;
+import com.usersapi.usersapi.dto.UserSummaryDto;
 import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.service.ExportService;
+import com.usersapi.usersapi.service.UserProvisioningService;
 import com.usersapi.usersapi.service.UserService;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
     private final UserService userService;
+    private final UserProvisioningService userProvisioningService;
+    private final ExportService exportService;
+    private final int maxResolveIds;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserProvisioningService userProvisioningService,
+                          ExportService exportService,
+                          @Value("${users.resolve.max-ids:500}") int maxResolveIds) {
         this.userService = userService;
+        this.userProvisioningService = userProvisioningService;
+        this.exportService = exportService;
+        this.maxResolveIds = maxResolveIds;
     }
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
+    // Listado paginado y proyectado (sin serializar entidades); por defecto excluye los eliminados
     @GetMapping
-    public List<UserDrimsoft> getAllUsers() {
-        return userService.findAll();
+    public ResponseEntity<PageResponse<UserSummaryDto>> getAllUsers(
+            @RequestParam(required = false) Integer idrole,
+            @RequestParam(required = false) Integer iduserstatus,
+            @RequestParam(defaultValue = "false") boolean includeDeleted,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "id") String sort
+    ) {
+        if (page < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        try {
+            return ResponseEntity.ok(userService.findPage(idrole, iduserstatus, includeDeleted, page, pageSize, sort));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Exportación completa en streaming (NDJSON por defecto; format=csv o Accept: text/csv para CSV),
+    // con los mismos filtros que el listado. 503 si ya hay users.export.max-concurrent en curso
+    @GetMapping("/export")
+    public void exportUsers(
+            @RequestParam(required = false) Integer idrole,
+            @RequestParam(required = false) Integer iduserstatus,
+            @RequestParam(defaultValue = "false") boolean includeDeleted,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response
+    ) throws IOException {
+        exportService.export(format, accept, "users", response, (resolved, out) ->
+                exportService.exportUsers(idrole, iduserstatus, includeDeleted, resolved, out));
+    }
+
+    // Resolución en lote para otros servicios: idUser y/o UUID de Supabase -> {nombre, rol, estado}.
+    // Los inexistentes no aparecen en el mapa
+    @PostMapping("/resolve")
+    public ResponseEntity<Map<String, UserSummaryDto>> resolveUsers(@RequestBody UserResolveRequest request) {
+        List<Integer> ids = request.getIds() != null ? request.getIds() : List.of();
+        List<UUID> supabaseUserIds = request.getSupabaseUserIds() != null ? request.getSupabaseUserIds() : List.of();
+        if (ids.size() + supabaseUserIds.size() > maxResolveIds
+                || ids.stream().anyMatch(Objects::isNull) || supabaseUserIds.stream().anyMatch(Objects::isNull)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.resolve(ids, supabaseUserIds));
     }
 
     @GetMapping("/{id}")
@@ -28,11 +99,24 @@ public class UserController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Siempre un alta: un idUser en el cuerpo no puede sobrescribir una fila existente
     @PostMapping
     public UserDrimsoft createUser(@RequestBody UserDrimsoft user) {
+        user.setIdUser(null);
         return userService.save(user);
     }
 
+    // Alta masiva (Supabase + userdrimsoft), solo ADMIN. Responde una línea NDJSON por usuario en cuanto
+    // termina; index indica su posición en la petición y batch el lote confirmado (o revertido) con ella
+    @PostMapping(value = "/bulk", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<UserProvisionResult>> provisionUsers(@RequestBody List<UserProvisionRequest> users) {
+        try {
+            return ResponseEntity.ok(userProvisioningService.provision(users));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<UserDrimsoft> updateUser(@PathVariable Integer id, @RequestBody UserDrimsoft userDetails) {
         return userService.findById(id).map(user -> {
@@ -59,7 +143,7 @@ public class UserController {
     @DeleteMapping("/{id}")
     public ResponseEntity<UserDrimsoft> deleteUser(@PathVariable Integer id) {
         return userService.findById(id).map(user -> {
-            UserDrimsoft updatedUser = userService.updateStatus(id, 3);
+            UserDrimsoft updatedUser = userService.updateStatus(id, UserService.STATUS_DELETED);
             return ResponseEntity.ok(updatedUser);
         }).orElse(ResponseEntity.notFound().build());
     }
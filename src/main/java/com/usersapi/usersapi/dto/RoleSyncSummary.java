@@ -0,0 +1,19 @@
+package com.usersapi.usersapi.dto;
+
+public class RoleSyncSummary {
+    private long synced; // roles replicados en Supabase
+    private long failed; // fallidos tras agotar los reintentos
+
+    public RoleSyncSummary() {}
+
+    public RoleSyncSummary(long synced, long failed) {
+        this.synced = synced;
+        this.failed = failed;
+    }
+
+    public long getSynced() { return synced; }
+    public void setSynced(long synced) { this.synced = synced; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+}
@@ -0,0 +1,33 @@
+package com.usersapi.usersapi.dto;
+
+import java.util.List;
+
+public class TicketBulkRequest {
+
+    public enum Operation { STATUS, ASSIGN, ANSWER }
+
+    private Operation operation;
+    private List<Integer> ids;
+    private Integer idticketstatus; // STATUS
+    private Integer iddrimsoftuser; // ASSIGN (obligatorio), ANSWER (opcional)
+    private String answer;          // ANSWER
+    private Integer expectedStatus; // opcional: solo se actualizan los tickets en este estado
+
+    public Operation getOperation() { return operation; }
+    public void setOperation(Operation operation) { this.operation = operation; }
+
+    public List<Integer> getIds() { return ids; }
+    public void setIds(List<Integer> ids) { this.ids = ids; }
+
+    public Integer getIdticketstatus() { return idticketstatus; }
+    public void setIdticketstatus(Integer idticketstatus) { this.idticketstatus = idticketstatus; }
+
+    public Integer getIddrimsoftuser() { return iddrimsoftuser; }
+    public void setIddrimsoftuser(Integer iddrimsoftuser) { this.iddrimsoftuser = iddrimsoftuser; }
+
+    public String getAnswer() { return answer; }
+    public void setAnswer(String answer) { this.answer = answer; }
+
+    public Integer getExpectedStatus() { return expectedStatus; }
+    public void setExpectedStatus(Integer expectedStatus) { this.expectedStatus = expectedStatus; }
+}
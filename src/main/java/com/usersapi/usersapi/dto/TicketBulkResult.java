@@ -0,0 +1,37 @@
+package com.usersapi.usersapi.dto;
+
+public class TicketBulkResult {
+
+    public enum Outcome { CREATED, UPDATED, INVALID, NOT_FOUND, CONFLICT }
+
+    private int index;
+    private Integer idtickets;
+    private Outcome outcome;
+    private Integer idticketstatus; // estado resultante, o el actual en CONFLICT
+    private String error;
+
+    public TicketBulkResult() {}
+
+    public TicketBulkResult(int index, Integer idtickets, Outcome outcome, Integer idticketstatus, String error) {
+        this.index = index;
+        this.idtickets = idtickets;
+        this.outcome = outcome;
+        this.idticketstatus = idticketstatus;
+        this.error = error;
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public Integer getIdtickets() { return idtickets; }
+    public void setIdtickets(Integer idtickets) { this.idtickets = idtickets; }
+
+    public Outcome getOutcome() { return outcome; }
+    public void setOutcome(Outcome outcome) { this.outcome = outcome; }
+
+    public Integer getIdticketstatus() { return idticketstatus; }
+    public void setIdticketstatus(Integer idticketstatus) { this.idticketstatus = idticketstatus; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -0,0 +1,30 @@
+package com.usersapi.usersapi.dto;
+
+import java.util.UUID;
+
+public class TicketIntakeResponse {
+
+    // FAILED: la fila no se pudo insertar y quedó en el dead-letter del intake
+    public enum Status { QUEUED, CREATED, FAILED }
+
+    private UUID reference;
+    private Status status;
+    private Integer idtickets; // solo cuando ya se insertó (CREATED)
+
+    public TicketIntakeResponse() {}
+
+    public TicketIntakeResponse(UUID reference, Status status, Integer idtickets) {
+        this.reference = reference;
+        this.status = status;
+        this.idtickets = idtickets;
+    }
+
+    public UUID getReference() { return reference; }
+    public void setReference(UUID reference) { this.reference = reference; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public Integer getIdtickets() { return idtickets; }
+    public void setIdtickets(Integer idtickets) { this.idtickets = idtickets; }
+}
@@ -0,0 +1,26 @@
+package com.usersapi.usersapi.dto;
+
+import java.util.List;
+
+public class TicketPageResponse {
+    private List<TicketResponse> items;
+    private String nextCursor; // null cuando no hay más páginas
+    private int limit;
+
+    public TicketPageResponse() {}
+
+    public TicketPageResponse(List<TicketResponse> items, String nextCursor, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+
+    public List<TicketResponse> getItems() { return items; }
+    public void setItems(List<TicketResponse> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+}
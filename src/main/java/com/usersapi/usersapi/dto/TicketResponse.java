@@ -10,6 +10,25 @@ public class TicketResponse {
     private String answer;
     private Integer iddrimsoftuser;
     private String drimsoftusername;
+    private Long version;
+
+    public TicketResponse() {}
+
+    // Usado por las proyecciones JPQL (select new ...) de TicketSupportRepository
+    public TicketResponse(Integer idtickets, Integer idplanifikauser, Integer idticketstatus,
+                          String ticketstatusname, String title, String description, String answer,
+                          Integer iddrimsoftuser, String drimsoftusername, Long version) {
+        this.idtickets = idtickets;
+        this.idplanifikauser = idplanifikauser;
+        this.idticketstatus = idticketstatus;
+        this.ticketstatusname = ticketstatusname;
+        this.title = title;
+        this.description = description;
+        this.answer = answer;
+        this.iddrimsoftuser = iddrimsoftuser;
+        this.drimsoftusername = drimsoftusername;
+        this.version = version;
+    }
 
     public Integer getIdtickets() { return idtickets; }
     public void setIdtickets(Integer idtickets) { this.idtickets = idtickets; }
@@ -37,4 +56,7 @@ public class TicketResponse {
 
     public String getDrimsoftusername() { return drimsoftusername; }
     public void setDrimsoftusername(String drimsoftusername) { this.drimsoftusername = drimsoftusername; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
 }
@@ -0,0 +1,35 @@
+package com.usersapi.usersapi.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+public class TicketStatsResponse {
+    private Map<Integer, Long> byStatus;                      // idticketstatus -> tickets
+    private Map<Integer, Map<Integer, Long>> byDrimsoftUser;  // iddrimsoftuser -> idticketstatus -> tickets
+    private Map<Integer, Map<Integer, Long>> byPlanifikaUser; // idplanifikauser -> idticketstatus -> tickets
+    private Instant reconciledAt;                             // última reconciliación con la base de datos
+
+    public TicketStatsResponse() {}
+
+    public TicketStatsResponse(Map<Integer, Long> byStatus,
+                               Map<Integer, Map<Integer, Long>> byDrimsoftUser,
+                               Map<Integer, Map<Integer, Long>> byPlanifikaUser,
+                               Instant reconciledAt) {
+        this.byStatus = byStatus;
+        this.byDrimsoftUser = byDrimsoftUser;
+        this.byPlanifikaUser = byPlanifikaUser;
+        this.reconciledAt = reconciledAt;
+    }
+
+    public Map<Integer, Long> getByStatus() { return byStatus; }
+    public void setByStatus(Map<Integer, Long> byStatus) { this.byStatus = byStatus; }
+
+    public Map<Integer, Map<Integer, Long>> getByDrimsoftUser() { return byDrimsoftUser; }
+    public void setByDrimsoftUser(Map<Integer, Map<Integer, Long>> byDrimsoftUser) { this.byDrimsoftUser = byDrimsoftUser; }
+
+    public Map<Integer, Map<Integer, Long>> getByPlanifikaUser() { return byPlanifikaUser; }
+    public void setByPlanifikaUser(Map<Integer, Map<Integer, Long>> byPlanifikaUser) { this.byPlanifikaUser = byPlanifikaUser; }
+
+    public Instant getReconciledAt() { return reconciledAt; }
+    public void setReconciledAt(Instant reconciledAt) { this.reconciledAt = reconciledAt; }
+}
@@ -0,0 +1,24 @@
+package com.usersapi.usersapi.dto;
+
+public class UserProvisionRequest {
+    private String email;
+    private String password;
+    private String name;
+    private Integer idrole; // optional
+    private Integer iduserstatus; // optional
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Integer getIdrole() { return idrole; }
+    public void setIdrole(Integer idrole) { this.idrole = idrole; }
+
+    public Integer getIduserstatus() { return iduserstatus; }
+    public void setIduserstatus(Integer iduserstatus) { this.iduserstatus = iduserstatus; }
+}
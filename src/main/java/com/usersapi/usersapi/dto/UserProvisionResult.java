@@ -0,0 +1,55 @@
+package com.usersapi.usersapi.dto;
+
+import java.util.UUID;
+
+public class UserProvisionResult {
+
+    public enum Outcome { CREATED, INVALID, SUPABASE_ERROR, DB_ERROR }
+
+    private int index;
+    private String email;
+    private Outcome outcome;
+    private UUID supabaseuserid;
+    private Integer iduser;
+    private String error;
+    // Lote de inserción (0, 1, ...): cada lote se confirma o revierte entero; null si no llegó a la base de datos
+    private Integer batch;
+
+    public UserProvisionResult() {}
+
+    public UserProvisionResult(int index, String email, Outcome outcome, UUID supabaseuserid, Integer iduser, String error) {
+        this(index, email, outcome, supabaseuserid, iduser, error, null);
+    }
+
+    public UserProvisionResult(int index, String email, Outcome outcome, UUID supabaseuserid, Integer iduser, String error,
+                               Integer batch) {
+        this.index = index;
+        this.email = email;
+        this.outcome = outcome;
+        this.supabaseuserid = supabaseuserid;
+        this.iduser = iduser;
+        this.error = error;
+        this.batch = batch;
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public Outcome getOutcome() { return outcome; }
+    public void setOutcome(Outcome outcome) { this.outcome = outcome; }
+
+    public UUID getSupabaseuserid() { return supabaseuserid; }
+    public void setSupabaseuserid(UUID supabaseuserid) { this.supabaseuserid = supabaseuserid; }
+
+    public Integer getIduser() { return iduser; }
+    public void setIduser(Integer iduser) { this.iduser = iduser; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public Integer getBatch() { return batch; }
+    public void setBatch(Integer batch) { this.batch = batch; }
+}
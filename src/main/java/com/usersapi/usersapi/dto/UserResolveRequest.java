@@ -0,0 +1,15 @@
+package com.usersapi.usersapi.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public class UserResolveRequest {
+    private List<Integer> ids;             // idUser
+    private List<UUID> supabaseUserIds;    // UUID de Supabase (sub del token)
+
+    public List<Integer> getIds() { return ids; }
+    public void setIds(List<Integer> ids) { this.ids = ids; }
+
+    public List<UUID> getSupabaseUserIds() { return supabaseUserIds; }
+    public void setSupabaseUserIds(List<UUID> supabaseUserIds) { this.supabaseUserIds = supabaseUserIds; }
+}
@@ -0,0 +1,44 @@
+package com.usersapi.usersapi.dto;
+
+import java.util.UUID;
+
+// Fila del listado paginado de usuarios: proyección plana, sin cargar entidades
+public class UserSummaryDto {
+    private Integer idUser;
+    private String name;
+    private UUID supabaseUserId;
+    private UserRoleDto role;
+    private Integer idUserStatus;
+    private String statusName;
+
+    public UserSummaryDto() {}
+
+    // Usado por la proyección JPQL de UserRepository.findSummaries
+    public UserSummaryDto(Integer idUser, String name, UUID supabaseUserId,
+                          Integer idRole, String roleName, Integer idUserStatus, String statusName) {
+        this.idUser = idUser;
+        this.name = name;
+        this.supabaseUserId = supabaseUserId;
+        this.role = idRole != null ? new UserRoleDto(idRole, roleName) : null;
+        this.idUserStatus = idUserStatus;
+        this.statusName = statusName;
+    }
+
+    public Integer getIdUser() { return idUser; }
+    public void setIdUser(Integer idUser) { this.idUser = idUser; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public UUID getSupabaseUserId() { return supabaseUserId; }
+    public void setSupabaseUserId(UUID supabaseUserId) { this.supabaseUserId = supabaseUserId; }
+
+    public UserRoleDto getRole() { return role; }
+    public void setRole(UserRoleDto role) { this.role = role; }
+
+    public Integer getIdUserStatus() { return idUserStatus; }
+    public void setIdUserStatus(Integer idUserStatus) { this.idUserStatus = idUserStatus; }
+
+    public String getStatusName() { return statusName; }
+    public void setStatusName(String statusName) { this.statusName = statusName; }
+}
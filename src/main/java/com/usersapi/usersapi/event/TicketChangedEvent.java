@@ -0,0 +1,18 @@
+package com.usersapi.usersapi.event;
+
+import com.usersapi.usersapi.dto.TicketResponse;
+
+/**
+ * Cambio aplicado (y ya confirmado en base de datos) sobre un ticket, con el estado y el
+ * asignado que tenía antes (null en CREATED). Se publica con ApplicationEventPublisher
+ * desde los servicios de tickets.
+ */
+public record TicketChangedEvent(Type type, TicketResponse ticket,
+                                 Integer previousStatusId, Integer previousDrimsoftUserId) {
+
+    public enum Type { CREATED, ANSWERED, STATUS_CHANGED, ASSIGNED, READ }
+
+    public static TicketChangedEvent created(TicketResponse ticket) {
+        return new TicketChangedEvent(Type.CREATED, ticket, null, null);
+    }
+}
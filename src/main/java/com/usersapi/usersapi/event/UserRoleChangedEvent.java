@@ -0,0 +1,11 @@
+package com.usersapi.usersapi.event;
+
+import java.util.UUID;
+
+/**
+ * Rol efectivo de un usuario cambiado (y ya guardado) desde UserService: cambio de rol, eliminación
+ * lógica o restauración. roleName es null cuando ya no concede ninguno (eliminado o sin rol).
+ * SupabaseRoleSync lo replica en el app_metadata de Supabase.
+ */
+public record UserRoleChangedEvent(Integer idUser, UUID supabaseUserId, String roleName) {
+}
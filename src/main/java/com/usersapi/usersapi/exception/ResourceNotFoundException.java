@@ -0,0 +1,11 @@
+package com.usersapi.usersapi.exception;
+
+/**
+ * El ticket, usuario o estado referenciado no existe. Los controladores la traducen a 404.
+ */
+public class ResourceNotFoundException extends RuntimeException {
+
+    public ResourceNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.usersapi.usersapi.exception;
+
+/**
+ * Supabase no está disponible: circuito abierto, bulkhead lleno o plazo agotado.
+ * Los controladores la traducen a 503 para que el cliente reintente más tarde.
+ */
+public class SupabaseUnavailableException extends RuntimeException {
+
+    public SupabaseUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
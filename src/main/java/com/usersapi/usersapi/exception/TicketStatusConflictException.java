@@ -0,0 +1,21 @@
+package com.usersapi.usersapi.exception;
+
+/**
+ * La transición esperaba un estado distinto del actual (compare-and-set fallido).
+ * Los controladores la traducen a 409.
+ */
+public class TicketStatusConflictException extends RuntimeException {
+
+    private final Integer expectedStatusId;
+    private final Integer currentStatusId;
+
+    public TicketStatusConflictException(Integer ticketId, Integer expectedStatusId, Integer currentStatusId) {
+        super("El ticket " + ticketId + " está en el estado " + currentStatusId + ", se esperaba " + expectedStatusId);
+        this.expectedStatusId = expectedStatusId;
+        this.currentStatusId = currentStatusId;
+    }
+
+    public Integer getExpectedStatusId() { return expectedStatusId; }
+
+    public Integer getCurrentStatusId() { return currentStatusId; }
+}
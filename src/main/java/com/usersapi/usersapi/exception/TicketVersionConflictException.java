@@ -0,0 +1,17 @@
+package com.usersapi.usersapi.exception;
+
+/**
+ * El If-Match no coincide con la versión actual del ticket (otro cliente lo modificó antes).
+ * Los controladores la traducen a 412.
+ */
+public class TicketVersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public TicketVersionConflictException(Integer ticketId, long expectedVersion, long currentVersion) {
+        super("El ticket " + ticketId + " está en la versión " + currentVersion + ", se esperaba " + expectedVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() { return currentVersion; }
+}
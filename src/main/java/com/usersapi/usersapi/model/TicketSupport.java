@@ -31,6 +31,11 @@ public class TicketSupport {
     @JoinColumn(name = "iddrimsoftuser", referencedColumnName = "iduser")
     private UserDrimsoft drimsoftUser;
 
+    // Se incrementa en cada cambio (también en los UPDATE JDBC); respalda los ETag y el If-Match
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     public Integer getIdTickets() {
         return idTickets;
     }
@@ -86,4 +91,12 @@ public class TicketSupport {
     public void setDrimsoftUser(UserDrimsoft drimsoftUser) {
         this.drimsoftUser = drimsoftUser;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,89 @@
+package com.usersapi.usersapi.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Lecturas completas para las exportaciones, fila a fila y sin acumular resultados.
+ * <p>
+ * El driver de Postgres solo abre un cursor de servidor (y trae users.export.fetch-size filas
+ * por round trip) con autocommit desactivado, fetch size &gt; 0 y un ResultSet forward-only;
+ * por eso cada método corre en una transacción de solo lectura. Sin ella el driver cargaría
+ * todas las filas en memoria antes de devolver la primera.
+ */
+@Repository
+public class ExportJdbcRepository {
+
+    // Columnas en el orden del SELECT; son también la cabecera CSV y las claves NDJSON
+    public static final List<String> USER_COLUMNS = List.of(
+            "iduser", "name", "supabaseuserid", "idrole", "rolename", "iduserstatus", "statusname");
+
+    public static final List<String> TICKET_COLUMNS = List.of(
+            "idtickets", "idplanifikauser", "idticketstatus", "ticketstatusname", "title", "description",
+            "answer", "iddrimsoftuser", "drimsoftusername", "version");
+
+    private static final String USERS_SQL = """
+            SELECT u.iduser, u.name, u.supabaseuserid, u.idrole, r.name AS rolename,
+                   u.iduserstatus, s.name AS statusname
+            FROM userdrimsoft u
+            LEFT JOIN role r ON r.idrole = u.idrole
+            LEFT JOIN userstatus s ON s.iduserstatus = u.iduserstatus
+            WHERE (CAST(? AS integer) IS NULL OR u.idrole = ?)
+              AND ((CAST(? AS integer) IS NULL
+                    AND (CAST(? AS integer) IS NULL OR u.iduserstatus IS NULL OR u.iduserstatus <> ?))
+                   OR u.iduserstatus = ?)
+            ORDER BY u.iduser
+            """;
+
+    private static final String TICKETS_SQL = """
+            SELECT t.idtickets, t.idplanifikauser, t.idticketstatus, s.name AS ticketstatusname, t.title,
+                   t.description, t.answer, t.iddrimsoftuser, u.name AS drimsoftusername, t.version
+            FROM ticketsupport t
+            LEFT JOIN ticketstatus s ON s.idticketstatus = t.idticketstatus
+            LEFT JOIN userdrimsoft u ON u.iduser = t.iddrimsoftuser
+            WHERE (CAST(? AS integer) IS NULL OR t.idticketstatus = ?)
+              AND (CAST(? AS integer) IS NULL OR t.iddrimsoftuser = ?)
+              AND (CAST(? AS integer) IS NULL OR t.idplanifikauser = ?)
+            ORDER BY t.idtickets
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public ExportJdbcRepository(JdbcTemplate jdbcTemplate,
+                                @Value("${users.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    // excludedStatusId: estado que se omite (p. ej. eliminados) salvo que se filtre por él; null = todos.
+    // Mismo criterio que UserRepository.findSummaries
+    @Transactional(readOnly = true)
+    public void streamUsers(Integer roleId, Integer statusId, Integer excludedStatusId, RowCallbackHandler handler) {
+        stream(USERS_SQL, handler, roleId, roleId, statusId, excludedStatusId, excludedStatusId, statusId);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamTickets(Integer statusId, Integer drimsoftUserId, Integer planifikaUserId,
+                              RowCallbackHandler handler) {
+        stream(TICKETS_SQL, handler, statusId, statusId, drimsoftUserId, drimsoftUserId,
+                planifikaUserId, planifikaUserId);
+    }
+
+    private void stream(String sql, RowCallbackHandler handler, Object... args) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, handler);
+    }
+}
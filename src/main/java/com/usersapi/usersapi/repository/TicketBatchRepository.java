@@ -0,0 +1,224 @@
+package com.usersapi.usersapi.repository;
+
+import com.usersapi.usersapi.model.TicketSupport;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.CurrentState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Escrituras masivas sobre ticketsupport con batching JDBC (IDENTITY impide el batching de Hibernate).
+ */
+@Repository
+public class TicketBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO ticketsupport (idplanifikauser, title, description, iddrimsoftuser, idticketstatus) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+
+    // Idempotente por referencia de intake: reprocesar el journal tras un fallo no duplica tickets
+    private static final String INTAKE_SQL =
+            "INSERT INTO ticketsupport (idplanifikauser, title, description, iddrimsoftuser, idticketstatus, "
+                    + "intakereference) VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (intakereference) DO NOTHING";
+    private static final String INTAKE_IDS_SQL =
+            "SELECT intakereference, idtickets FROM ticketsupport WHERE intakereference = ANY(?)";
+
+    // Guarda compare-and-set común: los dos últimos parámetros son el estado esperado (null = sin guarda)
+    private static final String WHERE_GUARD =
+            " WHERE idtickets = ? AND (CAST(? AS integer) IS NULL OR idticketstatus = ?)";
+
+    private static final String STATUS_SQL =
+            "UPDATE ticketsupport SET idticketstatus = ?, version = version + 1" + WHERE_GUARD;
+    private static final String ASSIGN_SQL =
+            "UPDATE ticketsupport SET iddrimsoftuser = ?, idticketstatus = COALESCE(?, idticketstatus), "
+                    + "version = version + 1" + WHERE_GUARD;
+    private static final String ANSWER_SQL =
+            "UPDATE ticketsupport SET answer = ?, "
+                    + "iddrimsoftuser = COALESCE((SELECT iduser FROM userdrimsoft WHERE iduser = ?), iddrimsoftuser), "
+                    + "idticketstatus = COALESCE(?, idticketstatus), version = version + 1" + WHERE_GUARD;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public TicketBatchRepository(JdbcTemplate jdbcTemplate,
+                                 @Value("${users.jdbc.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserta todos los tickets en una única transacción y asigna el idtickets generado a cada uno.
+     */
+    @Transactional
+    public List<TicketSupport> insertAll(List<TicketSupport> tickets) {
+        for (int from = 0; from < tickets.size(); from += batchSize) {
+            List<TicketSupport> chunk = tickets.subList(from, Math.min(from + batchSize, tickets.size()));
+            GeneratedKeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERT_SQL, new String[]{"idtickets"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            TicketSupport ticket = chunk.get(i);
+                            ps.setObject(1, ticket.getIdPlanifikaUser(), Types.INTEGER);
+                            ps.setString(2, ticket.getTitle());
+                            ps.setString(3, ticket.getDescription());
+                            ps.setObject(4, ticket.getDrimsoftUser() != null ? ticket.getDrimsoftUser().getIdUser() : null, Types.INTEGER);
+                            ps.setObject(5, ticket.getStatus() != null ? ticket.getStatus().getIdTicketStatus() : null, Types.INTEGER);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    },
+                    keys);
+
+            List<Map<String, Object>> generated = keys.getKeyList();
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setIdTickets(((Number) generated.get(i).get("idtickets")).intValue());
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * Inserta los tickets encolados por el intake asíncrono y devuelve el idtickets de cada referencia,
+     * incluidas las que ya se habían insertado en un drenado anterior.
+     */
+    @Transactional
+    public Map<UUID, Integer> insertIntake(List<TicketSupport> tickets, List<UUID> references) {
+        for (int from = 0; from < tickets.size(); from += batchSize) {
+            int offset = from;
+            int size = Math.min(batchSize, tickets.size() - from);
+            jdbcTemplate.batchUpdate(INTAKE_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    TicketSupport ticket = tickets.get(offset + i);
+                    ps.setObject(1, ticket.getIdPlanifikaUser(), Types.INTEGER);
+                    ps.setString(2, ticket.getTitle());
+                    ps.setString(3, ticket.getDescription());
+                    ps.setObject(4, ticket.getDrimsoftUser() != null ? ticket.getDrimsoftUser().getIdUser() : null, Types.INTEGER);
+                    ps.setObject(5, ticket.getStatus() != null ? ticket.getStatus().getIdTicketStatus() : null, Types.INTEGER);
+                    ps.setObject(6, references.get(offset + i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return size;
+                }
+            });
+        }
+
+        Map<UUID, Integer> ids = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INTAKE_IDS_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", references.toArray()));
+            return ps;
+        }, rs -> {
+            ids.put(rs.getObject("intakereference", UUID.class), rs.getInt("idtickets"));
+        });
+        return ids;
+    }
+
+    /**
+     * idtickets creado a partir de una referencia de intake, si el drenado ya lo insertó.
+     */
+    public Optional<Integer> findIdByIntakeReference(UUID reference) {
+        return jdbcTemplate.query("SELECT idtickets FROM ticketsupport WHERE intakereference = ?",
+                (rs, rowNum) -> rs.getInt("idtickets"), reference).stream().findFirst();
+    }
+
+    @Transactional
+    public BulkUpdate updateStatus(List<Integer> ids, int statusId, Integer expectedStatusId) {
+        return updateAll(STATUS_SQL, ids, expectedStatusId, statusId);
+    }
+
+    /**
+     * El usuario debe existir (lo comprueba el llamador una sola vez para todo el lote).
+     */
+    @Transactional
+    public BulkUpdate assignUser(List<Integer> ids, int userId, Integer statusId, Integer expectedStatusId) {
+        return updateAll(ASSIGN_SQL, ids, expectedStatusId, userId, statusId);
+    }
+
+    @Transactional
+    public BulkUpdate updateAnswer(List<Integer> ids, String answer, Integer userId, Integer statusId,
+                                   Integer expectedStatusId) {
+        return updateAll(ANSWER_SQL, ids, expectedStatusId, answer, userId, statusId);
+    }
+
+    /**
+     * Ids actualizados y, para todos los tickets existentes del lote, su estado y asignado
+     * anteriores (los ausentes del mapa no existen).
+     */
+    public record BulkUpdate(List<Integer> updated, Map<Integer, CurrentState> previous) {}
+
+    // Bloquea las filas del lote (dentro de la transacción del llamador) y lee sus valores previos
+    private Map<Integer, CurrentState> lockCurrentStates(List<Integer> ids) {
+        Map<Integer, CurrentState> states = new HashMap<>();
+        jdbcTemplate.query(
+                con -> {
+                    PreparedStatement ps = con.prepareStatement(
+                            "SELECT idtickets, idticketstatus, iddrimsoftuser, version FROM ticketsupport "
+                                    + "WHERE idtickets = ANY (?) FOR UPDATE");
+                    ps.setArray(1, con.createArrayOf("integer", ids.toArray()));
+                    return ps;
+                },
+                rs -> {
+                    states.put(rs.getInt("idtickets"), new CurrentState(
+                            (Integer) rs.getObject("idticketstatus"), (Integer) rs.getObject("iddrimsoftuser"),
+                            rs.getLong("version")));
+                });
+        return states;
+    }
+
+    /**
+     * Ejecuta el UPDATE en lotes solo para los tickets existentes y devuelve los que sí se actualizaron.
+     */
+    private BulkUpdate updateAll(String sql, List<Integer> allIds, Integer expectedStatusId, Object... setArgs) {
+        Map<Integer, CurrentState> previous = lockCurrentStates(allIds);
+        List<Integer> ids = allIds.stream().filter(previous::containsKey).toList();
+        if (ids.isEmpty()) {
+            return new BulkUpdate(List.of(), previous);
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(sql, ids, batchSize, (ps, id) -> {
+            int p = 1;
+            for (Object arg : setArgs) {
+                if (arg instanceof String text) {
+                    ps.setString(p++, text);
+                } else {
+                    ps.setObject(p++, arg, Types.INTEGER);
+                }
+            }
+            ps.setInt(p++, id);
+            ps.setObject(p++, expectedStatusId, Types.INTEGER);
+            ps.setObject(p, expectedStatusId, Types.INTEGER);
+        });
+
+        List<Integer> updated = new ArrayList<>();
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count > 0) {
+                    updated.add(ids.get(i));
+                }
+                i++;
+            }
+        }
+        return new BulkUpdate(updated, previous);
+    }
+}
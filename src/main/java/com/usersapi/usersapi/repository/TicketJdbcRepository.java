@@ -0,0 +1,278 @@
+package com.usersapi.usersapi.repository;
+
+import com.usersapi.usersapi.dto.PageResponse;
+import com.usersapi.usersapi.dto.TicketResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Transiciones de ticket en un único round trip: un UPDATE condicional por ids de referencia
+ * (sin cargar entidades) que devuelve la proyección ya unida con estado y usuario, junto con
+ * el estado y asignado anteriores. Un resultado vacío significa que no se aplicó: ticket
+ * inexistente o guarda no cumplida.
+ */
+@Repository
+public class TicketJdbcRepository {
+
+    // %s = cláusula SET, %s = guardas adicionales del WHERE.
+    // "old" bloquea la fila y conserva los valores previos para devolverlos en el RETURNING.
+    private static final String TRANSITION_SQL = """
+            WITH old AS (
+                SELECT idtickets, idticketstatus, iddrimsoftuser
+                FROM ticketsupport WHERE idtickets = ? FOR UPDATE
+            ), upd AS (
+                UPDATE ticketsupport t SET %s, version = t.version + 1
+                FROM old
+                WHERE t.idtickets = old.idtickets
+                  AND (CAST(? AS integer) IS NULL OR t.idticketstatus = ?)
+                  AND (CAST(? AS bigint) IS NULL OR t.version = ?)%s
+                RETURNING t.idtickets, t.idplanifikauser, t.idticketstatus, t.title,
+                          t.description, t.answer, t.iddrimsoftuser, t.version,
+                          old.idticketstatus AS previousstatus, old.iddrimsoftuser AS previoususer
+            )
+            SELECT upd.*, s.name AS ticketstatusname, u.name AS drimsoftusername
+            FROM upd
+            LEFT JOIN ticketstatus s ON s.idticketstatus = upd.idticketstatus
+            LEFT JOIN userdrimsoft u ON u.iduser = upd.iddrimsoftuser
+            """;
+
+    // Cola de trabajo: el ticket más antiguo en el estado de origen que no esté bloqueado por otro claim.
+    // SKIP LOCKED hace que los agentes concurrentes tomen tickets distintos sin esperarse entre sí.
+    private static final String CLAIM_SQL = """
+            WITH old AS (
+                SELECT idtickets, idticketstatus, iddrimsoftuser
+                FROM ticketsupport
+                WHERE idticketstatus = ?
+                  AND (CAST(? AS integer) IS NULL OR idplanifikauser = ?)
+                ORDER BY idtickets
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            ), upd AS (
+                UPDATE ticketsupport t SET iddrimsoftuser = ?, idticketstatus = ?, version = t.version + 1
+                FROM old
+                WHERE t.idtickets = old.idtickets
+                RETURNING t.idtickets, t.idplanifikauser, t.idticketstatus, t.title,
+                          t.description, t.answer, t.iddrimsoftuser, t.version,
+                          old.idticketstatus AS previousstatus, old.iddrimsoftuser AS previoususer
+            )
+            SELECT upd.*, s.name AS ticketstatusname, u.name AS drimsoftusername
+            FROM upd
+            LEFT JOIN ticketstatus s ON s.idticketstatus = upd.idticketstatus
+            LEFT JOIN userdrimsoft u ON u.iduser = upd.iddrimsoftuser
+            """;
+
+    // Usuario opcional: si no existe se conserva el asignado actual (mismo criterio que la versión JPA)
+    private static final String OPTIONAL_USER =
+            "COALESCE((SELECT iduser FROM userdrimsoft WHERE iduser = ?), t.iddrimsoftuser)";
+
+    // Requiere la columna generada search_vector y su índice GIN (resources/db/ticketsupport_search.sql).
+    // count(*) OVER () devuelve el total de coincidencias en la misma consulta que la página.
+    private static final String SEARCH_SQL = """
+            SELECT t.idtickets, t.idplanifikauser, t.idticketstatus, t.title, t.description, t.answer,
+                   t.iddrimsoftuser, t.version, s.name AS ticketstatusname, u.name AS drimsoftusername,
+                   count(*) OVER () AS total
+            FROM ticketsupport t
+            CROSS JOIN websearch_to_tsquery('spanish', ?) q
+            LEFT JOIN ticketstatus s ON s.idticketstatus = t.idticketstatus
+            LEFT JOIN userdrimsoft u ON u.iduser = t.iddrimsoftuser
+            WHERE t.search_vector @@ q
+              AND (CAST(? AS integer) IS NULL OR t.idticketstatus = ?)
+              AND (CAST(? AS integer) IS NULL OR t.iddrimsoftuser = ?)
+            ORDER BY ts_rank(t.search_vector, q) DESC, t.idtickets DESC
+            LIMIT ? OFFSET ?
+            """;
+
+    private static final RowMapper<TicketResponse> ROW_MAPPER = (rs, i) -> new TicketResponse(
+            rs.getInt("idtickets"),
+            (Integer) rs.getObject("idplanifikauser"),
+            (Integer) rs.getObject("idticketstatus"),
+            rs.getString("ticketstatusname"),
+            rs.getString("title"),
+            rs.getString("description"),
+            rs.getString("answer"),
+            (Integer) rs.getObject("iddrimsoftuser"),
+            rs.getString("drimsoftusername"),
+            rs.getLong("version"));
+
+    private static final RowMapper<Transition> TRANSITION_MAPPER = (rs, i) -> new Transition(
+            ROW_MAPPER.mapRow(rs, i),
+            new CurrentState((Integer) rs.getObject("previousstatus"), (Integer) rs.getObject("previoususer"),
+                    rs.getLong("version") - 1));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TicketJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<Transition> updateStatus(int ticketId, int statusId, Guard guard) {
+        return transition("idticketstatus = ?", "", ticketId, guard, List.of(statusId), List.of());
+    }
+
+    /**
+     * Asigna un usuario que debe existir; statusId null conserva el estado actual.
+     */
+    public Optional<Transition> assignUser(int ticketId, int userId, Integer statusId, Guard guard) {
+        return transition("iddrimsoftuser = ?, idticketstatus = COALESCE(?, t.idticketstatus)",
+                "\n  AND EXISTS (SELECT 1 FROM userdrimsoft WHERE iduser = ?)",
+                ticketId, guard, Arrays.asList(userId, statusId), List.of(userId));
+    }
+
+    /**
+     * Cambia el estado y, si userId existe, lo asigna; statusId null conserva el estado actual.
+     */
+    public Optional<Transition> markAsRead(int ticketId, Integer userId, Integer statusId, Guard guard) {
+        return transition("iddrimsoftuser = " + OPTIONAL_USER + ", idticketstatus = COALESCE(?, t.idticketstatus)",
+                "", ticketId, guard, Arrays.asList(userId, statusId), List.of());
+    }
+
+    public Optional<Transition> updateAnswer(int ticketId, String answer, Integer userId, Integer statusId,
+                                             Guard guard) {
+        return transition("answer = ?, iddrimsoftuser = " + OPTIONAL_USER
+                        + ", idticketstatus = COALESCE(?, t.idticketstatus)",
+                "", ticketId, guard, Arrays.asList(answer, userId, statusId), List.of());
+    }
+
+    /**
+     * Toma el ticket más antiguo en fromStatusId (opcionalmente de un usuario de planifika), lo asigna
+     * a userId y lo pasa a toStatusId. Vacío si no queda ninguno libre; el usuario debe existir.
+     */
+    public Optional<Transition> claimNext(int fromStatusId, Integer planifikaUserId, int userId, int toStatusId) {
+        return jdbcTemplate.query(CLAIM_SQL, TRANSITION_MAPPER,
+                fromStatusId, planifikaUserId, planifikaUserId, userId, toStatusId).stream().findFirst();
+    }
+
+    /**
+     * Estado actual del ticket, para explicar por qué una transición no se aplicó.
+     * Vacío si el ticket no existe.
+     */
+    public Optional<CurrentState> findCurrentState(int ticketId) {
+        return jdbcTemplate.query(
+                        "SELECT idticketstatus, iddrimsoftuser, version FROM ticketsupport WHERE idtickets = ?",
+                        (rs, i) -> new CurrentState((Integer) rs.getObject("idticketstatus"),
+                                (Integer) rs.getObject("iddrimsoftuser"), rs.getLong("version")), ticketId)
+                .stream().findFirst();
+    }
+
+    public record CurrentState(Integer idTicketStatus, Integer idDrimsoftUser, long version) {}
+
+    /**
+     * Condiciones compare-and-set de una transición; null = sin comprobar.
+     */
+    public record Guard(Integer expectedStatusId, Long expectedVersion) {
+        public static final Guard NONE = new Guard(null, null);
+    }
+
+    /**
+     * Ticket tras la transición y sus valores previos.
+     */
+    public record Transition(TicketResponse ticket, CurrentState previous) {}
+
+    /**
+     * Proyección de varios tickets en una sola consulta (sin orden garantizado).
+     */
+    public List<TicketResponse> findAllByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("""
+                    SELECT t.idtickets, t.idplanifikauser, t.idticketstatus, t.title, t.description, t.answer,
+                           t.iddrimsoftuser, t.version, s.name AS ticketstatusname, u.name AS drimsoftusername
+                    FROM ticketsupport t
+                    LEFT JOIN ticketstatus s ON s.idticketstatus = t.idticketstatus
+                    LEFT JOIN userdrimsoft u ON u.iduser = t.iddrimsoftuser
+                    WHERE t.idtickets = ANY (?)
+                    """);
+            ps.setArray(1, con.createArrayOf("integer", ids.toArray()));
+            return ps;
+        }, ROW_MAPPER);
+    }
+
+    /**
+     * Recuento de tickets por (estado, asignado, usuario de planifika) en una sola pasada.
+     */
+    public List<TicketCount> countByStatusAndUsers() {
+        return jdbcTemplate.query("""
+                        SELECT idticketstatus, iddrimsoftuser, idplanifikauser, count(*) AS total
+                        FROM ticketsupport
+                        GROUP BY idticketstatus, iddrimsoftuser, idplanifikauser
+                        """,
+                (rs, i) -> new TicketCount((Integer) rs.getObject("idticketstatus"),
+                        (Integer) rs.getObject("iddrimsoftuser"),
+                        (Integer) rs.getObject("idplanifikauser"),
+                        rs.getLong("total")));
+    }
+
+    /**
+     * Recuento por (estado, asignado, usuario de planifika) y, en la misma instantánea (REPEATABLE READ),
+     * la versión y el estado de los tickets que devuelva touched una vez hecho el recuento. Los tickets
+     * que no existían en la instantánea no aparecen en tickets.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public CountSnapshot countSnapshot(Supplier<Collection<Integer>> touched) {
+        List<TicketCount> counts = countByStatusAndUsers();
+        Collection<Integer> ids = touched.get();
+        Map<Integer, TicketState> tickets = new HashMap<>();
+        if (!ids.isEmpty()) {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT idtickets, version, idticketstatus, iddrimsoftuser, idplanifikauser "
+                                + "FROM ticketsupport WHERE idtickets = ANY (?)");
+                ps.setArray(1, con.createArrayOf("integer", ids.toArray()));
+                return ps;
+            }, (RowCallbackHandler) rs -> tickets.put(rs.getInt("idtickets"), new TicketState(rs.getLong("version"),
+                    (Integer) rs.getObject("idticketstatus"),
+                    (Integer) rs.getObject("iddrimsoftuser"),
+                    (Integer) rs.getObject("idplanifikauser"))));
+        }
+        return new CountSnapshot(counts, tickets);
+    }
+
+    public record TicketCount(Integer idTicketStatus, Integer idDrimsoftUser, Integer idPlanifikaUser, long count) {}
+
+    public record TicketState(long version, Integer idTicketStatus, Integer idDrimsoftUser, Integer idPlanifikaUser) {}
+
+    public record CountSnapshot(List<TicketCount> counts, Map<Integer, TicketState> tickets) {}
+
+    /**
+     * Búsqueda full-text ordenada por relevancia; statusId/userId null = sin filtro.
+     */
+    public PageResponse<TicketResponse> search(String query, Integer statusId, Integer userId, int page, int size) {
+        long[] total = {0};
+        List<TicketResponse> items = jdbcTemplate.query(SEARCH_SQL, (rs, i) -> {
+                    total[0] = rs.getLong("total");
+                    return ROW_MAPPER.mapRow(rs, i);
+                },
+                query, statusId, statusId, userId, userId, size, (long) page * size);
+        return new PageResponse<>(items, page, size, total[0]);
+    }
+
+    private Optional<Transition> transition(String set, String guards, int ticketId, Guard guard,
+                                            List<Object> setArgs, List<Object> guardArgs) {
+        List<Object> args = new ArrayList<>();
+        args.add(ticketId);
+        args.addAll(setArgs);
+        args.add(guard.expectedStatusId());
+        args.add(guard.expectedStatusId());
+        args.add(guard.expectedVersion());
+        args.add(guard.expectedVersion());
+        args.addAll(guardArgs);
+        return jdbcTemplate.query(TRANSITION_SQL.formatted(set, guards), TRANSITION_MAPPER, args.toArray())
+                .stream().findFirst();
+    }
+}
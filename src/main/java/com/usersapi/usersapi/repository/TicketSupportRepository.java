@@ -1,13 +1,48 @@
 package com.usersapi.usersapi.repository;
 
+import com.usersapi.usersapi.dto.TicketResponse;
 import com.usersapi.usersapi.model.TicketSupport;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TicketSupportRepository extends JpaRepository<TicketSupport, Integer> {
-    List<TicketSupport> findByIdPlanifikaUser(Integer idPlanifikaUser);
-    List<TicketSupport> findByDrimsoftUser_IdUser(Integer idUser);
+    // Paginación keyset sobre idtickets: filtros opcionales combinables (null = sin filtro).
+    // Proyecta directamente a TicketResponse en una sola consulta, sin cargar los grafos EAGER
+    // de status/drimsoftUser (y role/status del usuario) por cada fila.
+    @Query("""
+            select new com.usersapi.usersapi.dto.TicketResponse(
+                t.idTickets, t.idPlanifikaUser, s.idTicketStatus, s.name,
+                t.title, t.description, t.answer, u.idUser, u.name, t.version)
+            from TicketSupport t
+            left join t.status s
+            left join t.drimsoftUser u
+            where (:afterId is null or t.idTickets > :afterId)
+              and (:statusId is null or s.idTicketStatus = :statusId)
+              and (:drimsoftUserId is null or u.idUser = :drimsoftUserId)
+              and (:planifikaUserId is null or t.idPlanifikaUser = :planifikaUserId)
+            order by t.idTickets asc
+            """)
+    List<TicketResponse> findPage(@Param("statusId") Integer statusId,
+                                  @Param("drimsoftUserId") Integer drimsoftUserId,
+                                  @Param("planifikaUserId") Integer planifikaUserId,
+                                  @Param("afterId") Integer afterId,
+                                  Limit limit);
+
+    @Query("""
+            select new com.usersapi.usersapi.dto.TicketResponse(
+                t.idTickets, t.idPlanifikaUser, s.idTicketStatus, s.name,
+                t.title, t.description, t.answer, u.idUser, u.name, t.version)
+            from TicketSupport t
+            left join t.status s
+            left join t.drimsoftUser u
+            where t.idTickets = :id
+            """)
+    Optional<TicketResponse> findResponseById(@Param("id") Integer id);
 }
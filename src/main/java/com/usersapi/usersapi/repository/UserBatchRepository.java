@@ -0,0 +1,69 @@
+package com.usersapi.usersapi.repository;
+
+import com.usersapi.usersapi.model.UserDrimsoft;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserciones masivas en userdrimsoft con batching JDBC (IDENTITY impide el batching de Hibernate).
+ */
+@Repository
+public class UserBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO userdrimsoft (iduserstatus, idrole, name, supabaseuserid) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public UserBatchRepository(JdbcTemplate jdbcTemplate,
+                               @Value("${users.jdbc.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserta todos los usuarios en una única transacción y asigna el iduser generado a cada uno.
+     */
+    @Transactional
+    public List<UserDrimsoft> insertAll(List<UserDrimsoft> users) {
+        for (int from = 0; from < users.size(); from += batchSize) {
+            List<UserDrimsoft> chunk = users.subList(from, Math.min(from + batchSize, users.size()));
+            GeneratedKeyHolder keys = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERT_SQL, new String[]{"iduser"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            UserDrimsoft user = chunk.get(i);
+                            ps.setObject(1, user.getStatus() != null ? user.getStatus().getIdUserStatus() : null, Types.INTEGER);
+                            ps.setObject(2, user.getRole() != null ? user.getRole().getIdRole() : null, Types.INTEGER);
+                            ps.setString(3, user.getName());
+                            ps.setObject(4, user.getSupabaseUserId());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    },
+                    keys);
+
+            List<Map<String, Object>> generated = keys.getKeyList();
+            for (int i = 0; i < chunk.size(); i++) {
+                chunk.get(i).setIdUser(((Number) generated.get(i).get("iduser")).intValue());
+            }
+        }
+        return users;
+    }
+}
@@ -1,14 +1,59 @@
 package com.usersapi.usersapi.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.usersapi.usersapi.dto.UserSummaryDto;
 import com.usersapi.usersapi.model.UserDrimsoft;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserDrimsoft, Integer> {
     Optional<UserDrimsoft> findBySupabaseUserId(UUID supabaseUserId);
-}
\ No newline at end of file
+
+    // Resolución en lote: una sola consulta con rol y estado (sin N+1 de las relaciones EAGER)
+    @Query("""
+            select u from UserDrimsoft u
+            left join fetch u.role
+            left join fetch u.status
+            where u.idUser in :ids or u.supabaseUserId in :supabaseUserIds
+            """)
+    List<UserDrimsoft> findAllByIdsOrSupabaseUserIds(@Param("ids") Collection<Integer> ids,
+                                                     @Param("supabaseUserIds") Collection<UUID> supabaseUserIds);
+
+    // Listado paginado en una sola consulta con join a rol y estado.
+    // Sin statusId se excluyen los eliminados (excludedStatusId) salvo que sea null.
+    @Query(value = """
+            select new com.usersapi.usersapi.dto.UserSummaryDto(
+                u.idUser, u.name, u.supabaseUserId, r.IDRole, r.name, s.IDUserStatus, s.name)
+            from UserDrimsoft u
+            left join u.role r
+            left join u.status s
+            where (:roleId is null or r.IDRole = :roleId)
+              and ((:statusId is null
+                    and (:excludedStatusId is null or s.IDUserStatus is null or s.IDUserStatus <> :excludedStatusId))
+                   or s.IDUserStatus = :statusId)
+            """,
+            countQuery = """
+            select count(u)
+            from UserDrimsoft u
+            left join u.role r
+            left join u.status s
+            where (:roleId is null or r.IDRole = :roleId)
+              and ((:statusId is null
+                    and (:excludedStatusId is null or s.IDUserStatus is null or s.IDUserStatus <> :excludedStatusId))
+                   or s.IDUserStatus = :statusId)
+            """)
+    Page<UserSummaryDto> findSummaries(@Param("roleId") Integer roleId,
+                                       @Param("statusId") Integer statusId,
+                                       @Param("excludedStatusId") Integer excludedStatusId,
+                                       Pageable pageable);
+}
@@ -0,0 +1,39 @@
+package com.usersapi.usersapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Memoriza las authorities de cada {@link Jwt} devuelto por {@link CachingJwtDecoder}.
+ * Las claves se comparan por identidad (weakKeys): la entrada desaparece cuando el
+ * decoder deja de retener ese Jwt.
+ */
+public class CachingAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
+
+    private final Converter<Jwt, Collection<GrantedAuthority>> delegate;
+    private final Cache<Jwt, Collection<GrantedAuthority>> authorities;
+
+    public CachingAuthoritiesConverter(Converter<Jwt, Collection<GrantedAuthority>> delegate,
+                                       long maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.authorities = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, authorities, "jwt.authorities");
+    }
+
+    @Override
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        return authorities.get(jwt, key -> List.copyOf(delegate.convert(key)));
+    }
+}
@@ -0,0 +1,64 @@
+package com.usersapi.usersapi.security;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Roles a partir de los claims role, user_role y roles del JWT, de app_metadata.role (rol de
+ * Drimsoft replicado por SupabaseRoleSync), más los scopes por defecto.
+ */
+public class ClaimAuthoritiesConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
+
+    public static final String APP_METADATA_ROLE = "role";
+
+    private final JwtGrantedAuthoritiesConverter defaultGrantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+
+    public ClaimAuthoritiesConverter() {
+        defaultGrantedAuthoritiesConverter.setAuthorityPrefix("ROLE_");
+    }
+
+    @Override
+    public Collection<GrantedAuthority> convert(Jwt jwt) {
+        Collection<GrantedAuthority> authorities = new ArrayList<>();
+
+        if (jwt.getClaim("role") != null) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + jwt.getClaimAsString("role").toUpperCase()));
+        }
+
+        if (jwt.getClaim("user_role") != null) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + jwt.getClaimAsString("user_role").toUpperCase()));
+        }
+
+        String appRole = appMetadataRole(jwt);
+        if (appRole != null) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + appRole.toUpperCase()));
+        }
+
+        Object rolesObj = jwt.getClaim("roles");
+        if (rolesObj instanceof List<?> roles) {
+            for (Object role : roles) {
+                authorities.add(new SimpleGrantedAuthority("ROLE_" + role.toString().toUpperCase()));
+            }
+        }
+
+        authorities.addAll(defaultGrantedAuthoritiesConverter.convert(jwt));
+        return authorities;
+    }
+
+    // Rol de Drimsoft en app_metadata (solo lo escribe la service key, no el propio usuario)
+    public static String appMetadataRole(Jwt jwt) {
+        if (jwt.getClaim("app_metadata") instanceof Map<?, ?> appMetadata
+                && appMetadata.get(APP_METADATA_ROLE) instanceof String role && !role.isBlank()) {
+            return role;
+        }
+        return null;
+    }
+}
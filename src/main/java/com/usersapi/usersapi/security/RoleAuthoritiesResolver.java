@@ -0,0 +1,112 @@
+package com.usersapi.usersapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.service.UserIdentityCache;
+import com.usersapi.usersapi.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Authority ROLE_&lt;rol&gt; a partir de userdrimsoft.idrole del usuario del token (sub = UUID de Supabase).
+ * Se resuelve en cada autenticación desde {@link UserIdentityCache}, que UserService actualiza en
+ * cada escritura: un cambio de rol vale desde la siguiente petición sin consultar la base de datos
+ * en cada una. Los sub sin usuario se recuerdan en una caché negativa acotada para no repetir la consulta.
+ * <p>
+ * Si el token ya trae app_metadata.role (replicado por SupabaseRoleSync) no se consulta la base de
+ * datos: si el usuario está en la caché de identidad su rol efectivo sustituye al del claim (un cambio
+ * de rol vale al momento aunque el token sea anterior); si no, manda el claim hasta que el token expire.
+ * Un usuario eliminado (lógicamente) pierde todos los ROLE_*, también los de los claims.
+ */
+@Component
+public class RoleAuthoritiesResolver {
+
+    private final UserService userService;
+    private final UserIdentityCache identityCache;
+    private final Cache<UUID, Boolean> unknownSubjects;
+
+    public RoleAuthoritiesResolver(UserService userService,
+                                   UserIdentityCache identityCache,
+                                   @Value("${users.identity-cache.max-size:10000}") long maxSize,
+                                   @Value("${users.security.unknown-subject-ttl:1m}") Duration unknownSubjectTtl,
+                                   MeterRegistry meterRegistry) {
+        this.userService = userService;
+        this.identityCache = identityCache;
+        this.unknownSubjects = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(unknownSubjectTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, unknownSubjects, "users.identity.unknown-subjects");
+    }
+
+    /**
+     * Authorities finales: las de los claims del token más el rol de userdrimsoft.
+     */
+    public List<GrantedAuthority> resolve(Jwt jwt, Collection<GrantedAuthority> claimAuthorities) {
+        UUID subject = subject(jwt);
+        String claimRole = ClaimAuthoritiesConverter.appMetadataRole(jwt);
+        List<GrantedAuthority> authorities = new ArrayList<>(claimAuthorities);
+        Optional<UserDrimsoft> user;
+        if (claimRole != null) {
+            user = subject != null ? identityCache.getIfPresent(subject) : Optional.empty();
+            if (user.isEmpty()) {
+                return authorities;
+            }
+            // El rol de la caché reemplaza al replicado en el token
+            String replicated = "ROLE_" + claimRole.toUpperCase();
+            authorities.removeIf(authority -> authority.getAuthority().equals(replicated));
+        } else {
+            user = subject != null ? user(subject) : Optional.empty();
+        }
+        if (user.filter(UserService::isDeleted).isPresent()) {
+            return withoutRoles(claimAuthorities);
+        }
+        user.map(UserService::effectiveRole)
+                .ifPresent(role -> authorities.add(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase())));
+        return authorities;
+    }
+
+    private static List<GrantedAuthority> withoutRoles(Collection<GrantedAuthority> authorities) {
+        return authorities.stream()
+                .filter(authority -> !authority.getAuthority().startsWith("ROLE_"))
+                .toList();
+    }
+
+    // La caché de identidad va primero: un alta reciente (write-through) gana a la caché negativa
+    private Optional<UserDrimsoft> user(UUID subject) {
+        Optional<UserDrimsoft> cached = identityCache.getIfPresent(subject);
+        if (cached.isPresent() || unknownSubjects.getIfPresent(subject) != null) {
+            return cached;
+        }
+        Optional<UserDrimsoft> loaded = userService.findBySupabaseUserId(subject);
+        if (loaded.isEmpty()) {
+            unknownSubjects.put(subject, Boolean.TRUE);
+        }
+        return loaded;
+    }
+
+    private static UUID subject(Jwt jwt) {
+        if (jwt.getSubject() == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(jwt.getSubject());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,15 +1,22 @@
 package com.usersapi.usersapi.service;
 
+import com.usersapi.usersapi.client.SupabaseAuthClient;
+import com.usersapi.usersapi.client.SupabaseUserLookup;
+import com.usersapi.usersapi.exception.SupabaseUnavailableException;
 import com.usersapi.usersapi.model.UserDrimsoft;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.transaction.TransactionException;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -17,26 +24,32 @@ import java.util.UUID;
 @Service
 public class AuthService {
 
-    private final WebClient webClient;
-    private final String supabaseUrl;
-    private final String anonKey;
-    private final String serviceKey;
+    // Claims que deben venir en el JWT para poder responder /auth/me sin llamar a Supabase
+    private static final List<String> LOCAL_USER_CLAIMS =
+            List.of("sub", "aud", "role", "email", "app_metadata", "user_metadata");
+
+    // Claims opcionales que Supabase también devuelve en /auth/v1/user
+    private static final List<String> OPTIONAL_USER_CLAIMS = List.of("phone", "is_anonymous");
+
+    private final SupabaseAuthClient supabaseAuthClient;
+    private final SupabaseUserLookup supabaseUserLookup;
     private final UserService userService;
+    private final JwtDecoder jwtDecoder;
+    private final boolean localUserInfo;
+    private final Scheduler jdbcScheduler;
 
-    public AuthService(@Value("${supabase.url}") String supabaseUrl,
-                       @Value("${supabase.anon.key}") String anonKey,
-                       @Value("${supabase.service.key}") String serviceKey,
-                       WebClient.Builder webClientBuilder,
-                       UserService userService) {
-        this.supabaseUrl = supabaseUrl;
-        this.anonKey = anonKey;
-        this.serviceKey = serviceKey;
+    public AuthService(@Value("${supabase.auth.local-user-info:true}") boolean localUserInfo,
+                       SupabaseAuthClient supabaseAuthClient,
+                       SupabaseUserLookup supabaseUserLookup,
+                       UserService userService,
+                       JwtDecoder jwtDecoder,
+                       @Qualifier("jdbcScheduler") Scheduler jdbcScheduler) {
+        this.supabaseAuthClient = supabaseAuthClient;
+        this.supabaseUserLookup = supabaseUserLookup;
+        this.localUserInfo = localUserInfo;
         this.userService = userService;
-        this.webClient = webClientBuilder
-                .baseUrl(supabaseUrl)
-                .defaultHeader("apiKey", anonKey)
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + anonKey)
-                .build();
+        this.jwtDecoder = jwtDecoder;
+        this.jdbcScheduler = jdbcScheduler;
     }
 
     /**
@@ -45,12 +58,7 @@ public class AuthService {
      * body: { "email": "...", "password": "..." }
      */
     public Mono<Map> signUp(String email, String password) {
-        return webClient.post()
-                .uri("/auth/v1/signup")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(Map.of("email", email, "password", password))
-                .retrieve()
-                .bodyToMono(Map.class);
+        return supabaseAuthClient.signUp(email, password);
     }
 
     /**
@@ -58,39 +66,85 @@ public class AuthService {
      * POST /auth/v1/token?grant_type=password
      */
     public Mono<Map> signIn(String email, String password) {
-        return webClient.post()
-                .uri(uriBuilder -> uriBuilder.path("/auth/v1/token")
-                        .queryParam("grant_type", "password")
-                        .build())
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(Map.of("email", email, "password", password))
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(this::addRoleInformation);
+        return supabaseAuthClient.signIn(email, password)
+                .flatMap(this::withRoleInformation);
     }
 
     /**
-     * Obtener info del usuario con token:
-     * GET /auth/v1/user (Authorization: Bearer <access_token>)
+     * Obtener info del usuario con token.
+     * En modo local se construye la respuesta a partir de los claims del JWT (ya validado
+     * con el secreto HMAC) y solo se llama a GET /auth/v1/user si falta algún claim.
+     * Un token inválido falla con JwtException; el scheduler JDBC lleno o la base de datos caída,
+     * con RejectedExecutionException o DataAccessException.
      */
     public Mono<Map> getUser(String accessToken) {
-        return webClient.get()
-                .uri("/auth/v1/user")
-                .headers(h -> h.setBearerAuth(accessToken))
-                .retrieve()
-                .bodyToMono(Map.class)
-                .map(this::addRoleInformation);
+        if (!localUserInfo) {
+            return getUserRemote(accessToken);
+        }
+        return Mono.fromCallable(() -> userFromClaims(jwtDecoder.decode(accessToken)))
+                .flatMap(local -> local
+                        .map(this::withRoleInformation)
+                        .orElseGet(() -> getUserRemote(accessToken)));
+    }
+
+    /**
+     * GET /auth/v1/user (Authorization: Bearer <access_token>)
+     */
+    private Mono<Map> getUserRemote(String accessToken) {
+        return supabaseUserLookup.getUser(accessToken)
+                .map(user -> (Map) user)
+                .flatMap(this::withRoleInformation);
     }
 
     /**
-     * Adds role information to the Supabase response based on the user's UID
+     * Ejecuta el enriquecimiento (consulta JPA bloqueante) en el scheduler JDBC,
+     * fuera de los hilos de I/O de reactor-netty.
      */
-    private Map addRoleInformation(Map supabaseResponse) {
+    private Mono<Map> withRoleInformation(Map supabaseResponse) {
+        return Mono.fromCallable(() -> (Map) addRoleInformation(supabaseResponse))
+                .subscribeOn(jdbcScheduler);
+    }
+
+    /**
+     * Builds the same shape returned by GET /auth/v1/user from the token claims.
+     * Returns empty when a required claim is missing so the caller can fall back to Supabase.
+     */
+    private Optional<Map<String, Object>> userFromClaims(Jwt jwt) {
+        for (String claim : LOCAL_USER_CLAIMS) {
+            if (!jwt.hasClaim(claim)) {
+                return Optional.empty();
+            }
+        }
+
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", jwt.getSubject());
+        Object aud = jwt.getClaim("aud");
+        user.put("aud", aud instanceof Collection<?> audiences && audiences.size() == 1
+                ? audiences.iterator().next()
+                : aud);
+        user.put("role", jwt.getClaim("role"));
+        user.put("email", jwt.getClaim("email"));
+        user.put("app_metadata", jwt.getClaim("app_metadata"));
+        user.put("user_metadata", jwt.getClaim("user_metadata"));
+        for (String claim : OPTIONAL_USER_CLAIMS) {
+            if (jwt.hasClaim(claim)) {
+                user.put(claim, jwt.getClaim(claim));
+            }
+        }
+        return Optional.of(user);
+    }
+
+    /**
+     * Adds role information to the Supabase response based on the user's UID.
+     * Accepts both the token response ({ "user": {...} }) and the plain user object.
+     * Package-private so the JMH benchmarks can measure it.
+     */
+    Map addRoleInformation(Map supabaseResponse) {
         Map<String, Object> response = new HashMap<>(supabaseResponse);
         
         try {
             // Extract the user information from the Supabase response
-            Object userObj = supabaseResponse.get("user");
+            Object userObj = supabaseResponse.containsKey("user") ? supabaseResponse.get("user") : supabaseResponse;
             if (userObj instanceof Map) {
                 Map userMap = (Map) userObj;
                 String uid = (String) userMap.get("id");
@@ -123,6 +177,9 @@ public class AuthService {
         } catch (IllegalArgumentException e) {
             // Handle invalid UUID format
             System.err.println("Invalid UUID format: " + e.getMessage());
+        } catch (DataAccessException | TransactionException e) {
+            // Base de datos caída: se propaga para responder 503 en vez de un usuario sin rol
+            throw e;
         } catch (Exception e) {
             // Handle other potential errors
             System.err.println("Error adding role information: " + e.getMessage());
@@ -132,11 +189,7 @@ public class AuthService {
     }
 
     public Mono<Map<String, Object>> getUserSupabase(String accessToken) {
-        return webClient.get()
-                .uri("/auth/v1/user")
-                .headers(h -> h.setBearerAuth(accessToken))
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {});
+        return supabaseUserLookup.getUser(accessToken);
     }
 
     public Mono<Map<String, Object>> updateProfile(String accessToken, String name, String password) {
@@ -173,18 +226,7 @@ public class AuthService {
                             data.put("full_name", name);
                         }
 
-                        authUpdateMono = webClient.put()
-                                .uri("/auth/v1/user")
-                                .headers(h -> h.setBearerAuth(accessToken))
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .bodyValue(payload)
-                                .retrieve()
-                                .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(), clientResponse ->
-                                        clientResponse.bodyToMono(String.class)
-                                                .defaultIfEmpty("[No response body]")
-                                                .flatMap(errorBody -> Mono.error(new RuntimeException("Supabase Auth Update Error (" + clientResponse.statusCode() + "): " + errorBody)))
-                                )
-                                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {});
+                        authUpdateMono = supabaseAuthClient.updateUser(accessToken, payload);
                     } else {
                         authUpdateMono = Mono.just(Map.of("skipped", true));
                     }
@@ -203,12 +245,14 @@ public class AuthService {
                                             })
                                             .orElseThrow(() -> new RuntimeException("Usuario no encontrado en la base de datos de la aplicación"));
                                 })
+                                .subscribeOn(jdbcScheduler)
                                 .onErrorResume(e -> Mono.error(new RuntimeException("Error al actualizar datos en la base de datos: " + e.getMessage())));
                     } else {
                         dbUpdateMono = Mono.just(Map.of("skipped", true));
                     }
 
                     return Mono.zip(authUpdateMono, dbUpdateMono)
+                            .doOnSuccess(result -> supabaseUserLookup.invalidate(accessToken))
                             .map(tuple -> Map.<String, Object>of(
                                     "auth", tuple.getT1(),
                                     "db", tuple.getT2(),
@@ -216,6 +260,9 @@ public class AuthService {
                             ));
                 })
                 .onErrorResume(e -> {
+                    if (e instanceof SupabaseUnavailableException) {
+                        return Mono.error(e);
+                    }
                     e.printStackTrace();
                     String errorMessage = e.getMessage() != null ? e.getMessage() : "Error desconocido al actualizar el perfil";
                     return Mono.error(new RuntimeException(errorMessage));
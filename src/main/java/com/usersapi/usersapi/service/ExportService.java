@@ -0,0 +1,304 @@
+package com.usersapi.usersapi.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvFactory;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.usersapi.usersapi.repository.ExportJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Exportaciones completas de usuarios y tickets en NDJSON o CSV.
+ * <p>
+ * Cada fila del cursor se escribe en el OutputStream de la respuesta con un generador de Jackson
+ * en cuanto llega, así que la memoria no depende del tamaño de la tabla. Cada exportación
+ * ocupa una conexión del pool mientras dura: {@link #tryAcquire()} limita las simultáneas a
+ * users.export.max-concurrent para no dejar sin conexiones al resto de endpoints.
+ * <p>
+ * Un cliente que lee despacio retendría la plaza y la conexión: la exportación se corta en la
+ * primera escritura después de users.export.max-duration. Una escritura bloqueada por un cliente que
+ * ya no lee no vuelve hasta que Tomcat la corta (server.tomcat.connection-timeout).
+ */
+@Service
+public class ExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        // Parámetro format explícito; si falta, text/csv en Accept elige CSV. Vacío = formato no soportado
+        public static Optional<Format> resolve(String format, String accept) {
+            if (format == null || format.isBlank()) {
+                return Optional.of(accept != null && accept.toLowerCase(Locale.ROOT).contains("text/csv") ? CSV : NDJSON);
+            }
+            try {
+                return Optional.of(valueOf(format.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    // Plaza de exportación; se libera al cerrarla
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // Escribe la exportación en el formato resuelto; devuelve las filas escritas
+    public interface Rows {
+        long write(Format format, OutputStream out) throws IOException;
+    }
+
+    private final ExportJdbcRepository exportJdbcRepository;
+    private final ObjectMapper objectMapper;
+    // Comillas solo donde hacen falta (separador, comillas o saltos de línea)
+    private final CsvFactory csvFactory = CsvFactory.builder()
+            .enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)
+            .build();
+    private final Semaphore slots;
+    private final int flushEvery;
+    private final long maxDurationNanos;
+    private final Counter deadlineExceeded;
+
+    public ExportService(ExportJdbcRepository exportJdbcRepository,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${users.export.max-concurrent:2}") int maxConcurrent,
+                         @Value("${users.export.fetch-size:1000}") int flushEvery,
+                         @Value("${users.export.max-duration:10m}") Duration maxDuration) {
+        this.exportJdbcRepository = exportJdbcRepository;
+        this.objectMapper = objectMapper;
+        this.slots = new Semaphore(maxConcurrent);
+        this.flushEvery = Math.max(1, flushEvery);
+        this.maxDurationNanos = maxDuration.toNanos();
+        meterRegistry.gauge("users.export.active", slots, s -> maxConcurrent - s.availablePermits());
+        this.deadlineExceeded = Counter.builder("users.export.deadline-exceeded")
+                .description("Exportaciones cortadas por superar users.export.max-duration")
+                .register(meterRegistry);
+    }
+
+    public Optional<Permit> tryAcquire() {
+        return slots.tryAcquire() ? Optional.of(slots::release) : Optional.empty();
+    }
+
+    /**
+     * Exportación como descarga baseName.ndjson / baseName.csv. El formato sale del parámetro o del
+     * Accept (400 si no se soporta); sin plaza libre responde 503 con Retry-After.
+     */
+    public void export(String format, String accept, String baseName, HttpServletResponse response, Rows rows)
+            throws IOException {
+        Format resolved = Format.resolve(format, accept).orElse(null);
+        if (resolved == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        Permit permit = tryAcquire().orElse(null);
+        if (permit == null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        try (permit) {
+            response.setContentType(resolved.contentType());
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(baseName + "." + resolved.extension()).build().toString());
+            rows.write(resolved, response.getOutputStream());
+        }
+    }
+
+    // Por defecto excluye los eliminados, igual que GET /users. Devuelve las filas escritas
+    public long exportUsers(Integer roleId, Integer statusId, boolean includeDeleted,
+                            Format format, OutputStream out) throws IOException {
+        return write(format, ExportJdbcRepository.USER_COLUMNS, out, handler -> exportJdbcRepository.streamUsers(
+                roleId, statusId, includeDeleted ? null : UserService.STATUS_DELETED, handler));
+    }
+
+    public long exportTickets(Integer statusId, Integer drimsoftUserId, Integer planifikaUserId,
+                              Format format, OutputStream out) throws IOException {
+        return write(format, ExportJdbcRepository.TICKET_COLUMNS, out, handler ->
+                exportJdbcRepository.streamTickets(statusId, drimsoftUserId, planifikaUserId, handler));
+    }
+
+    private interface Source {
+        void stream(RowCallbackHandler handler);
+    }
+
+    private long write(Format format, List<String> columns, OutputStream response, Source source) throws IOException {
+        long[] rows = {0};
+        OutputStream out = new DeadlineOutputStream(response, System.nanoTime() + maxDurationNanos);
+        try (RowWriter writer = format == Format.CSV ? new CsvRowWriter(columns, out) : new NdjsonRowWriter(columns, out)) {
+            source.stream(rs -> {
+                try {
+                    Object[] values = new Object[columns.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    writer.write(values);
+                    // El generador vacía su buffer al llenarse; además se empuja al cliente cada fetch-size filas
+                    if (++rows[0] % flushEvery == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Cliente desconectado u otro fallo de escritura: se corta el cursor y se propaga
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    // Duración total de la exportación: la primera escritura pasado el plazo la corta
+    private final class DeadlineOutputStream extends FilterOutputStream {
+
+        private final long deadline;
+        // Tras cortar, el cierre del generador ya no vuelve a escribir al cliente
+        private boolean exceeded;
+
+        DeadlineOutputStream(OutputStream out, long deadline) {
+            super(out);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkDeadline();
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            checkDeadline();
+            out.flush();
+        }
+
+        private void checkDeadline() throws IOException {
+            if (exceeded) {
+                throw new SocketTimeoutException("Exportación cortada por users.export.max-duration");
+            }
+            if (System.nanoTime() - deadline > 0) {
+                exceeded = true;
+                deadlineExceeded.increment();
+                throw new SocketTimeoutException("Exportación cortada por users.export.max-duration");
+            }
+        }
+    }
+
+    private abstract static class RowWriter implements AutoCloseable {
+
+        protected final List<String> columns;
+        protected final JsonGenerator generator;
+
+        RowWriter(List<String> columns, JsonGenerator generator) {
+            this.columns = columns;
+            this.generator = generator;
+            // El stream es de la respuesta: se vacía pero no se cierra
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        abstract void write(Object[] values) throws IOException;
+
+        void flush() throws IOException {
+            generator.flush();
+        }
+
+        protected void writeValue(Object value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof Integer i) {
+                generator.writeNumber(i);
+            } else if (value instanceof Long l) {
+                generator.writeNumber(l);
+            } else if (value instanceof BigDecimal d) {
+                generator.writeNumber(d);
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    // Un objeto JSON por línea, con las columnas como claves
+    private final class NdjsonRowWriter extends RowWriter {
+
+        NdjsonRowWriter(List<String> columns, OutputStream out) throws IOException {
+            super(columns, objectMapper.getFactory().createGenerator(out));
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        void write(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                generator.writeFieldName(columns.get(i));
+                writeValue(values[i]);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+    }
+
+    // Cabecera con los nombres de columna y una fila por registro (null = celda vacía)
+    private final class CsvRowWriter extends RowWriter {
+
+        CsvRowWriter(List<String> columns, OutputStream out) throws IOException {
+            super(columns, csvFactory.createGenerator(out));
+            CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+            columns.forEach(schema::addColumn);
+            generator.setSchema(schema.build());
+        }
+
+        @Override
+        void write(Object[] values) throws IOException {
+            generator.writeStartArray();
+            for (Object value : values) {
+                writeValue(value);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.model.Role;
+import com.usersapi.usersapi.model.TicketStatus;
+import com.usersapi.usersapi.model.UserStatus;
+import com.usersapi.usersapi.repository.RoleRepository;
+import com.usersapi.usersapi.repository.TicketStatusRepository;
+import com.usersapi.usersapi.repository.UserStatusRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot inmutable de las tablas de referencia (role, userstatus, ticketstatus).
+ * Se carga al arrancar y solo se recarga con {@link #refresh()}; las lecturas no
+ * tocan la base de datos ni toman locks (una lectura volatile del snapshot actual).
+ */
+@Service
+public class ReferenceDataService {
+
+    private final RoleRepository roleRepository;
+    private final UserStatusRepository userStatusRepository;
+    private final TicketStatusRepository ticketStatusRepository;
+
+    private volatile Snapshot snapshot;
+
+    public ReferenceDataService(RoleRepository roleRepository,
+                                UserStatusRepository userStatusRepository,
+                                TicketStatusRepository ticketStatusRepository) {
+        this.roleRepository = roleRepository;
+        this.userStatusRepository = userStatusRepository;
+        this.ticketStatusRepository = ticketStatusRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        refresh();
+    }
+
+    /**
+     * Recarga las tres tablas y publica un nuevo snapshot de forma atómica.
+     */
+    public synchronized Snapshot refresh() {
+        Snapshot loaded = new Snapshot(
+                index(roleRepository.findAll(), Role::getIdRole),
+                index(userStatusRepository.findAll(), UserStatus::getIdUserStatus),
+                index(ticketStatusRepository.findAll(), TicketStatus::getIdTicketStatus));
+        this.snapshot = loaded;
+        return loaded;
+    }
+
+    public List<Role> findAllRoles() {
+        return current().roles().values().stream()
+                .sorted(Comparator.comparing(Role::getIdRole))
+                .toList();
+    }
+
+    public Optional<Role> findRole(Integer id) {
+        return Optional.ofNullable(id).map(current().roles()::get);
+    }
+
+    public List<UserStatus> findAllUserStatuses() {
+        return current().userStatuses().values().stream()
+                .sorted(Comparator.comparing(UserStatus::getIdUserStatus))
+                .toList();
+    }
+
+    public Optional<UserStatus> findUserStatus(Integer id) {
+        return Optional.ofNullable(id).map(current().userStatuses()::get);
+    }
+
+    public List<TicketStatus> findAllTicketStatuses() {
+        return current().ticketStatuses().values().stream()
+                .sorted(Comparator.comparing(TicketStatus::getIdTicketStatus))
+                .toList();
+    }
+
+    public Optional<TicketStatus> findTicketStatus(Integer id) {
+        return Optional.ofNullable(id).map(current().ticketStatuses()::get);
+    }
+
+    public Optional<TicketStatus> findTicketStatusByName(String name) {
+        return current().ticketStatuses().values().stream()
+                .filter(s -> s.getName() != null && s.getName().equalsIgnoreCase(name))
+                .findFirst();
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        return s != null ? s : refresh();
+    }
+
+    private static <T> Map<Integer, T> index(List<T> rows, Function<T, Integer> id) {
+        return Map.copyOf(rows.stream().collect(Collectors.toMap(id, Function.identity())));
+    }
+
+    public record Snapshot(Map<Integer, Role> roles,
+                           Map<Integer, UserStatus> userStatuses,
+                           Map<Integer, TicketStatus> ticketStatuses) {
+    }
+}
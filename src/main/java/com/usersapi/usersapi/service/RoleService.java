@@ -2,7 +2,6 @@ package com.usersapi.usersapi.service;
 
 
 import com.usersapi.usersapi.model.Role;
-import com.usersapi.usersapi.repository.RoleRepository;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
@@ -10,17 +9,17 @@ import java.util.Optional;
 @Service
 public class RoleService {
 
-    private final RoleRepository roleRepository;
+    private final ReferenceDataService referenceDataService;
 
-    public RoleService(RoleRepository roleRepository) {
-        this.roleRepository = roleRepository;
+    public RoleService(ReferenceDataService referenceDataService) {
+        this.referenceDataService = referenceDataService;
     }
 
     public List<Role> findAll() {
-        return roleRepository.findAll();
+        return referenceDataService.findAllRoles();
     }
 
     public Optional<Role> findById(Integer id) {
-        return roleRepository.findById(id);
+        return referenceDataService.findRole(id);
     }
 }
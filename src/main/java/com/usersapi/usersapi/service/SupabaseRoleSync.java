@@ -0,0 +1,174 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.client.SupabaseAuthClient;
+import com.usersapi.usersapi.dto.RoleSyncSummary;
+import com.usersapi.usersapi.dto.UserSummaryDto;
+import com.usersapi.usersapi.event.UserRoleChangedEvent;
+import com.usersapi.usersapi.exception.SupabaseUnavailableException;
+import com.usersapi.usersapi.repository.UserRepository;
+import com.usersapi.usersapi.security.ClaimAuthoritiesConverter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replica el rol de userdrimsoft en el app_metadata de Supabase (admin API con la service key),
+ * para que los JWT emitidos después lo lleven y la autorización no tenga que leer la base de datos.
+ * <p>
+ * Cada cambio de rol se empuja en segundo plano con reintentos y backoff exponencial ante fallos
+ * transitorios (5xx, 429, timeouts, circuito abierto). Por usuario hay como mucho un envío en curso
+ * y siempre se envía el último rol deseado, así que cambios seguidos no pueden llegar desordenados.
+ * Un usuario eliminado (o sin rol) se envía con role = null, que retira el rol de los JWT siguientes;
+ * los ya emitidos lo conservan hasta su exp salvo en las instancias que ya tengan al usuario en la
+ * caché de identidad (ver RoleAuthoritiesResolver).
+ * {@link #backfill()} sincroniza todos los usuarios existentes por la misma cola por usuario; si un
+ * cambio ya está pendiente, gana al rol leído por el backfill.
+ */
+@Service
+public class SupabaseRoleSync {
+
+    private final SupabaseAuthClient supabaseAuthClient;
+    private final UserRepository userRepository;
+    private final Scheduler jdbcScheduler;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final int concurrency;
+    private final int pageSize;
+
+    // Marca de "sin rol" en desired (ConcurrentHashMap no admite null)
+    private static final String NO_ROLE = "";
+
+    // Último rol pendiente de enviar por usuario, y envío en curso por usuario (se completa con el
+    // resultado del último envío, cuando ya no queda nada pendiente)
+    private final Map<UUID, String> desired = new ConcurrentHashMap<>();
+    private final Map<UUID, Sinks.One<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter synced;
+    private final Counter failed;
+
+    public SupabaseRoleSync(SupabaseAuthClient supabaseAuthClient,
+                            UserRepository userRepository,
+                            @Qualifier("jdbcScheduler") Scheduler jdbcScheduler,
+                            @Value("${users.role-sync.max-attempts:5}") int maxAttempts,
+                            @Value("${users.role-sync.backoff:500ms}") Duration backoff,
+                            @Value("${users.role-sync.backfill-concurrency:8}") int concurrency,
+                            @Value("${users.jdbc.batch-size:500}") int pageSize,
+                            MeterRegistry meterRegistry) {
+        this.supabaseAuthClient = supabaseAuthClient;
+        this.userRepository = userRepository;
+        this.jdbcScheduler = jdbcScheduler;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.concurrency = concurrency;
+        this.pageSize = pageSize;
+        this.synced = Counter.builder("users.role-sync")
+                .tag("outcome", "synced")
+                .description("Roles replicados en el app_metadata de Supabase")
+                .register(meterRegistry);
+        this.failed = Counter.builder("users.role-sync")
+                .tag("outcome", "failed")
+                .description("Roles que no se pudieron replicar tras agotar los reintentos")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onRoleChanged(UserRoleChangedEvent event) {
+        desired.put(event.supabaseUserId(), event.roleName() != null ? event.roleName() : NO_ROLE);
+        drain(event.supabaseUserId());
+    }
+
+    /**
+     * Empuja el rol efectivo de todos los usuarios con UUID de Supabase (null para los eliminados o sin
+     * rol), por páginas de users.jdbc.batch-size y con concurrencia acotada hacia Supabase.
+     */
+    public Mono<RoleSyncSummary> backfill() {
+        return Flux.range(0, Integer.MAX_VALUE)
+                .concatMap(page -> Mono.fromCallable(() -> userRepository.findSummaries(null, null, null,
+                                PageRequest.of(page, pageSize, Sort.by("idUser"))))
+                        .subscribeOn(jdbcScheduler))
+                .takeUntil(page -> !page.hasNext())
+                .flatMapIterable(Page::getContent)
+                .filter(user -> user.getSupabaseUserId() != null)
+                .flatMap(this::enqueue, concurrency)
+                .reduce(new RoleSyncSummary(0, 0), (summary, ok) -> ok
+                        ? new RoleSyncSummary(summary.getSynced() + 1, summary.getFailed())
+                        : new RoleSyncSummary(summary.getSynced(), summary.getFailed() + 1));
+    }
+
+    private Mono<Boolean> enqueue(UserSummaryDto user) {
+        boolean deleted = Integer.valueOf(UserService.STATUS_DELETED).equals(user.getIdUserStatus());
+        String role = deleted || user.getRole() == null || user.getRole().getName() == null
+                ? NO_ROLE : user.getRole().getName();
+        desired.putIfAbsent(user.getSupabaseUserId(), role);
+        return drain(user.getSupabaseUserId());
+    }
+
+    // Un único envío en curso por usuario; al terminar se reenvía si el rol deseado cambió mientras tanto.
+    // Devuelve el resultado del último envío de la cadena en curso
+    private Mono<Boolean> drain(UUID supabaseUserId) {
+        Sinks.One<Boolean> done = Sinks.one();
+        Sinks.One<Boolean> running = inFlight.putIfAbsent(supabaseUserId, done);
+        if (running != null) {
+            return running.asMono();
+        }
+        send(supabaseUserId, done, true);
+        return done.asMono();
+    }
+
+    private void send(UUID supabaseUserId, Sinks.One<Boolean> done, boolean lastOk) {
+        String role = desired.get(supabaseUserId);
+        if (role == null) {
+            inFlight.remove(supabaseUserId, done);
+            done.tryEmitValue(lastOk);
+            if (desired.containsKey(supabaseUserId)) {
+                drain(supabaseUserId);
+            }
+            return;
+        }
+        push(supabaseUserId, role).subscribe(ok -> {
+            desired.remove(supabaseUserId, role);
+            send(supabaseUserId, done, ok);
+        });
+    }
+
+    // Nunca termina en error: false si se agotaron los reintentos o el fallo no es transitorio
+    private Mono<Boolean> push(UUID supabaseUserId, String role) {
+        return supabaseAuthClient.adminUpdateAppMetadata(supabaseUserId, Collections.singletonMap(
+                        ClaimAuthoritiesConverter.APP_METADATA_ROLE, NO_ROLE.equals(role) ? null : role))
+                .retryWhen(Retry.backoff(maxAttempts - 1, backoff).filter(SupabaseRoleSync::isTransient))
+                .then(Mono.fromCallable(() -> {
+                    synced.increment();
+                    return true;
+                }))
+                .onErrorResume(e -> {
+                    failed.increment();
+                    return Mono.just(false);
+                });
+    }
+
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return response.getStatusCode().is5xxServerError() || response.getStatusCode().value() == 429;
+        }
+        return e instanceof SupabaseUnavailableException || e instanceof WebClientRequestException;
+    }
+}
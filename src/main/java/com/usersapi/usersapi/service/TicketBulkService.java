@@ -0,0 +1,236 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.dto.TicketBulkRequest;
+import com.usersapi.usersapi.dto.TicketBulkResult;
+import com.usersapi.usersapi.dto.TicketBulkResult.Outcome;
+import com.usersapi.usersapi.dto.TicketCreateRequest;
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.event.TicketChangedEvent.Type;
+import com.usersapi.usersapi.exception.ResourceNotFoundException;
+import com.usersapi.usersapi.model.TicketStatus;
+import com.usersapi.usersapi.model.TicketSupport;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.repository.TicketBatchRepository;
+import com.usersapi.usersapi.repository.TicketBatchRepository.BulkUpdate;
+import com.usersapi.usersapi.repository.TicketJdbcRepository;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.CurrentState;
+import com.usersapi.usersapi.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Operaciones masivas sobre tickets: cada lote es una transacción con sentencias JDBC en batch
+ * y devuelve un resultado por elemento en el orden de la petición.
+ */
+@Service
+public class TicketBulkService {
+
+    private static final int STATUS_PENDING = 1;
+    private static final int STATUS_IN_PROGRESS = 2;
+    private static final int STATUS_ANSWERED = 3;
+
+    private final TicketBatchRepository ticketBatchRepository;
+    private final TicketStatusService ticketStatusService;
+    private final UserRepository userRepository;
+    private final TicketJdbcRepository ticketJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxItems;
+
+    public TicketBulkService(TicketBatchRepository ticketBatchRepository,
+                             TicketStatusService ticketStatusService,
+                             UserRepository userRepository,
+                             TicketJdbcRepository ticketJdbcRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${users.tickets.bulk.max-items:1000}") int maxItems) {
+        this.ticketBatchRepository = ticketBatchRepository;
+        this.ticketStatusService = ticketStatusService;
+        this.userRepository = userRepository;
+        this.ticketJdbcRepository = ticketJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Aplica la operación a todos los ids (los duplicados se procesan una vez).
+     * Lanza IllegalArgumentException si la petición está incompleta y
+     * ResourceNotFoundException si el estado o el usuario a asignar no existen.
+     */
+    public List<TicketBulkResult> apply(TicketBulkRequest request) {
+        if (request == null || request.getOperation() == null) {
+            throw new IllegalArgumentException("Debe indicar la operación");
+        }
+        List<Integer> ids = distinctIds(request.getIds());
+        Integer expected = request.getExpectedStatus();
+
+        BulkUpdate result;
+        Integer targetStatus;
+        Type eventType;
+        switch (request.getOperation()) {
+            case STATUS -> {
+                if (request.getIdticketstatus() == null) {
+                    throw new IllegalArgumentException("idticketstatus es obligatorio");
+                }
+                targetStatus = knownStatus(request.getIdticketstatus());
+                if (targetStatus == null) {
+                    throw new ResourceNotFoundException("Estado no encontrado con ID: " + request.getIdticketstatus());
+                }
+                result = ticketBatchRepository.updateStatus(ids, targetStatus, expected);
+                eventType = Type.STATUS_CHANGED;
+            }
+            case ASSIGN -> {
+                Integer userId = request.getIddrimsoftuser();
+                if (userId == null) {
+                    throw new IllegalArgumentException("iddrimsoftuser es obligatorio");
+                }
+                if (!userRepository.existsById(userId)) {
+                    throw new ResourceNotFoundException("Usuario no encontrado con ID: " + userId);
+                }
+                targetStatus = knownStatus(STATUS_IN_PROGRESS);
+                result = ticketBatchRepository.assignUser(ids, userId, targetStatus, expected);
+                eventType = Type.ASSIGNED;
+            }
+            case ANSWER -> {
+                if (request.getAnswer() == null || request.getAnswer().isBlank()) {
+                    throw new IllegalArgumentException("answer es obligatorio");
+                }
+                targetStatus = knownStatus(STATUS_ANSWERED);
+                result = ticketBatchRepository.updateAnswer(ids, request.getAnswer(), request.getIddrimsoftuser(),
+                        targetStatus, expected);
+                eventType = Type.ANSWERED;
+            }
+            default -> throw new IllegalArgumentException("Operación no soportada: " + request.getOperation());
+        }
+        publish(eventType, result);
+        return outcomes(ids, result, targetStatus, expected);
+    }
+
+    /**
+     * Alta masiva: valida cada ticket, resuelve los usuarios en una sola consulta
+     * (los inexistentes se ignoran, como en el alta individual) e inserta en batch.
+     */
+    public List<TicketBulkResult> create(List<TicketCreateRequest> requests) {
+        checkSize(requests);
+
+        TicketBulkResult[] results = new TicketBulkResult[requests.size()];
+        List<Integer> indexes = new ArrayList<>();
+        List<TicketCreateRequest> valid = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TicketCreateRequest request = requests.get(i);
+            if (request == null || request.getIdplanifikauser() == null
+                    || request.getTitle() == null || request.getDescription() == null) {
+                results[i] = new TicketBulkResult(i, null, Outcome.INVALID, null,
+                        "idplanifikauser, title y description son obligatorios");
+                continue;
+            }
+            indexes.add(i);
+            valid.add(request);
+        }
+        List<TicketSupport> tickets = toTickets(valid);
+
+        if (!tickets.isEmpty()) {
+            ticketBatchRepository.insertAll(tickets);
+            ticketJdbcRepository.findAllByIds(tickets.stream().map(TicketSupport::getIdTickets).toList())
+                    .forEach(ticket -> eventPublisher.publishEvent(TicketChangedEvent.created(ticket)));
+        }
+        for (int k = 0; k < tickets.size(); k++) {
+            TicketSupport ticket = tickets.get(k);
+            results[indexes.get(k)] = new TicketBulkResult(indexes.get(k), ticket.getIdTickets(), Outcome.CREATED,
+                    ticket.getStatus() != null ? ticket.getStatus().getIdTicketStatus() : null, null);
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Construye las entidades de tickets ya validados: usuarios resueltos en una sola consulta
+     * (los inexistentes se ignoran) y estado PENDING por defecto.
+     */
+    public List<TicketSupport> toTickets(List<TicketCreateRequest> requests) {
+        Set<Integer> userIds = new HashSet<>();
+        requests.stream().map(TicketCreateRequest::getIddrimsoftuser).filter(Objects::nonNull).forEach(userIds::add);
+        Set<Integer> existingUsers = new HashSet<>();
+        if (!userIds.isEmpty()) {
+            userRepository.findAllById(userIds).forEach(u -> existingUsers.add(u.getIdUser()));
+        }
+        TicketStatus pending = ticketStatusService.findById(STATUS_PENDING).orElse(null);
+
+        List<TicketSupport> tickets = new ArrayList<>(requests.size());
+        for (TicketCreateRequest request : requests) {
+            TicketSupport ticket = new TicketSupport();
+            ticket.setIdPlanifikaUser(request.getIdplanifikauser());
+            ticket.setTitle(request.getTitle());
+            ticket.setDescription(request.getDescription());
+            if (request.getIddrimsoftuser() != null && existingUsers.contains(request.getIddrimsoftuser())) {
+                UserDrimsoft user = new UserDrimsoft();
+                user.setIdUser(request.getIddrimsoftuser());
+                ticket.setDrimsoftUser(user);
+            }
+            TicketStatus status = request.getIdticketstatus() != null
+                    ? ticketStatusService.findById(request.getIdticketstatus()).orElse(pending)
+                    : pending;
+            ticket.setStatus(status);
+            tickets.add(ticket);
+        }
+        return tickets;
+    }
+
+    // Una consulta extra por lote para que los eventos lleven la proyección completa (nombres incluidos)
+    private void publish(Type type, BulkUpdate result) {
+        if (result.updated().isEmpty()) {
+            return;
+        }
+        for (TicketResponse ticket : ticketJdbcRepository.findAllByIds(result.updated())) {
+            CurrentState previous = result.previous().get(ticket.getIdtickets());
+            eventPublisher.publishEvent(new TicketChangedEvent(type, ticket,
+                    previous.idTicketStatus(), previous.idDrimsoftUser()));
+        }
+    }
+
+    private List<TicketBulkResult> outcomes(List<Integer> ids, BulkUpdate result, Integer targetStatus,
+                                            Integer expected) {
+        Set<Integer> updated = new HashSet<>(result.updated());
+        List<TicketBulkResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Integer id = ids.get(i);
+            if (updated.contains(id)) {
+                results.add(new TicketBulkResult(i, id, Outcome.UPDATED, targetStatus, null));
+            } else if (result.previous().containsKey(id)) {
+                results.add(new TicketBulkResult(i, id, Outcome.CONFLICT, result.previous().get(id).idTicketStatus(),
+                        "Se esperaba el estado " + expected));
+            } else {
+                results.add(new TicketBulkResult(i, id, Outcome.NOT_FOUND, null, "Ticket no encontrado"));
+            }
+        }
+        return results;
+    }
+
+    private List<Integer> distinctIds(List<Integer> ids) {
+        if (ids != null && ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Los ids no pueden ser nulos");
+        }
+        List<Integer> distinct = ids == null ? List.of() : new ArrayList<>(new LinkedHashSet<>(ids));
+        checkSize(distinct);
+        return distinct;
+    }
+
+    private void checkSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Debe enviar al menos un elemento");
+        }
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Máximo " + maxItems + " elementos por petición");
+        }
+    }
+
+    private Integer knownStatus(Integer statusId) {
+        return ticketStatusService.findById(statusId).map(TicketStatus::getIdTicketStatus).orElse(null);
+    }
+}
@@ -0,0 +1,103 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Difunde los TicketChangedEvent a los clientes SSE. Guarda los últimos eventos en un buffer
+ * acotado para que un cliente que reconecta con Last-Event-ID reciba lo que se perdió.
+ * <p>
+ * Los ids son "&lt;época&gt;-&lt;secuencia&gt;": la secuencia vuelve a 0 en cada arranque y la época
+ * (instante de arranque) distingue los ids de otro proceso o de otra réplica, que reciben "resync".
+ */
+@Component
+public class TicketEventHub {
+
+    private final Sinks.Many<Sequenced> sink;
+    private final int replaySize;
+    private final Duration heartbeat;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private long sequence;
+
+    public TicketEventHub(@Value("${users.tickets.stream.replay-size:1000}") int replaySize,
+                          @Value("${users.tickets.stream.heartbeat:15s}") Duration heartbeat) {
+        this.sink = Sinks.many().replay().limit(replaySize);
+        this.replaySize = replaySize;
+        this.heartbeat = heartbeat;
+    }
+
+    // synchronized: el sink exige emisiones serializadas y el orden de ids debe coincidir con el de emisión
+    @EventListener
+    public synchronized void onTicketChanged(TicketChangedEvent event) {
+        sink.tryEmitNext(new Sequenced(++sequence, event));
+    }
+
+    /**
+     * Eventos posteriores a lastEventId (null o vacío = solo los nuevos) que pasan los filtros (null = sin filtro).
+     * Si lastEventId ya salió del buffer, es de otra época o no se reconoce, se envía primero un evento
+     * "resync" para que el cliente recargue; luego sigue lo que quede en el buffer (id antiguo de esta
+     * época) o solo los eventos nuevos (cualquier otro caso).
+     */
+    public Flux<ServerSentEvent<TicketChangedEvent>> subscribe(String lastEventId, Integer drimsoftUserId,
+                                                                Integer planifikaUserId) {
+        return Flux.defer(() -> {
+            long current;
+            synchronized (this) {
+                current = sequence;
+            }
+            Long resumeFrom = lastEventId == null || lastEventId.isBlank() ? null : sequenceOf(lastEventId.trim());
+            boolean stale = lastEventId != null && !lastEventId.isBlank()
+                    && (resumeFrom == null || resumeFrom > current || resumeFrom < current - replaySize);
+            // Un id por delante de la secuencia es de otro proceso: se sigue desde aquí
+            long after = resumeFrom != null && resumeFrom <= current ? resumeFrom : current;
+            Flux<ServerSentEvent<TicketChangedEvent>> resync = stale
+                    ? Flux.just(ServerSentEvent.<TicketChangedEvent>builder().event("resync").build())
+                    : Flux.empty();
+
+            // El sink repite primero el buffer y luego sigue en vivo: basta con descartar por id
+            Flux<ServerSentEvent<TicketChangedEvent>> events = sink.asFlux()
+                    .filter(e -> e.id() > after)
+                    .filter(e -> matches(e.event(), drimsoftUserId, planifikaUserId))
+                    .map(e -> ServerSentEvent.builder(e.event())
+                            .id(eventId(e.id()))
+                            .event(e.event().type().name())
+                            .build());
+            Flux<ServerSentEvent<TicketChangedEvent>> keepAlive = Flux.interval(heartbeat)
+                    .map(i -> ServerSentEvent.<TicketChangedEvent>builder().comment("keep-alive").build());
+
+            return resync.concatWith(Flux.merge(events, keepAlive));
+        });
+    }
+
+    String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    // Secuencia de un id de esta época; null si es de otra época o no tiene el formato
+    private Long sequenceOf(String eventId) {
+        int dash = eventId.indexOf('-');
+        if (dash < 0 || !epoch.equals(eventId.substring(0, dash))) {
+            return null;
+        }
+        try {
+            return Long.valueOf(eventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean matches(TicketChangedEvent event, Integer drimsoftUserId, Integer planifikaUserId) {
+        return (drimsoftUserId == null || Objects.equals(drimsoftUserId, event.ticket().getIddrimsoftuser()))
+                && (planifikaUserId == null || Objects.equals(planifikaUserId, event.ticket().getIdplanifikauser()));
+    }
+
+    private record Sequenced(long id, TicketChangedEvent event) {}
+}
@@ -0,0 +1,448 @@
+package com.usersapi.usersapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersapi.usersapi.dto.TicketCreateRequest;
+import com.usersapi.usersapi.dto.TicketIntakeResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.model.TicketSupport;
+import com.usersapi.usersapi.repository.TicketBatchRepository;
+import com.usersapi.usersapi.repository.TicketJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alta asíncrona de tickets (write-behind) para ráfagas de creación.
+ * <p>
+ * {@link #accept} anota el ticket en un journal local (append + fsync), lo encola en una cola acotada
+ * y devuelve una referencia al momento; un único hilo drena la cola en INSERT por lotes.
+ * El journal registra cada alta ("A"), cada lote drenado ("D") y cada alta descartada ("X"), y se
+ * vacía cuando no queda nada pendiente; al arrancar se reencolan las altas sin drenar. La columna
+ * intakereference es única, así que reprocesar un lote que llegó a insertarse antes de una caída no
+ * duplica tickets.
+ * <p>
+ * Si un lote falla por la base de datos (conexión, timeout, bloqueo) se reintenta entero tras
+ * retry-backoff. Cualquier otro fallo se atribuye a alguna fila: el lote se reintenta fila a fila y
+ * las que siguen fallando se apartan al fichero dead-letter (junto al journal, con el error) para
+ * que no bloqueen al resto.
+ */
+@Service
+public class TicketIntakeService {
+
+    private final TicketBulkService ticketBulkService;
+    private final TicketBatchRepository ticketBatchRepository;
+    private final TicketJdbcRepository ticketJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Path journalPath;
+    private final Path deadLetterPath;
+    private final int maxBatch;
+    private final Duration pollInterval;
+    private final Duration retryBackoff;
+
+    private final BlockingQueue<Entry> queue;
+    // Encolados y en el lote en curso: responde GET /tickets/intake/{reference} sin ir a la base de datos
+    private final Map<UUID, Entry> pending = new ConcurrentHashMap<>();
+    // Referencias apartadas al dead-letter: GET /tickets/intake/{reference} responde FAILED
+    private final Set<UUID> deadLettered = ConcurrentHashMap.newKeySet();
+    private final Object journalLock = new Object();
+    private FileChannel journal;
+
+    private final Timer drainLatency;
+    private final Counter rejected;
+    private final Counter drainFailures;
+    private final Counter deadLetters;
+
+    private volatile boolean running;
+    private Thread drainer;
+
+    public TicketIntakeService(TicketBulkService ticketBulkService,
+                               TicketBatchRepository ticketBatchRepository,
+                               TicketJdbcRepository ticketJdbcRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${users.tickets.intake.journal:data/ticket-intake.journal}") Path journalPath,
+                               @Value("${users.tickets.intake.capacity:10000}") int capacity,
+                               @Value("${users.jdbc.batch-size:500}") int maxBatch,
+                               @Value("${users.tickets.intake.poll-interval:200ms}") Duration pollInterval,
+                               @Value("${users.tickets.intake.retry-backoff:5s}") Duration retryBackoff) {
+        this.ticketBulkService = ticketBulkService;
+        this.ticketBatchRepository = ticketBatchRepository;
+        this.ticketJdbcRepository = ticketJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.journalPath = journalPath;
+        this.deadLetterPath = journalPath.resolveSibling(journalPath.getFileName() + ".dead-letter");
+        this.maxBatch = maxBatch;
+        this.pollInterval = pollInterval;
+        this.retryBackoff = retryBackoff;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("tickets.intake.backlog", pending, Map::size)
+                .description("Tickets aceptados pendientes de insertar")
+                .register(meterRegistry);
+        this.drainLatency = Timer.builder("tickets.intake.drain.latency")
+                .description("Tiempo desde que se acepta un ticket hasta que queda insertado")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("tickets.intake.rejected")
+                .description("Altas asíncronas rechazadas con la cola llena")
+                .register(meterRegistry);
+        this.drainFailures = Counter.builder("tickets.intake.drain.failures")
+                .description("Lotes que fallaron al insertarse y se reintentarán")
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("tickets.intake.dead-lettered")
+                .description("Altas asíncronas apartadas al dead-letter tras fallar también fila a fila")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reencola lo que quedó sin drenar en el journal antes de que el servidor acepte peticiones.
+     */
+    @PostConstruct
+    void recover() {
+        readDeadLetters();
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+        Map<UUID, Entry> undrained = new LinkedHashMap<>();
+        try {
+            List<String> lines = Files.readAllLines(journalPath, StandardCharsets.UTF_8);
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                try {
+                    if (line.startsWith("A ")) {
+                        Entry entry = objectMapper.readValue(line.substring(2), Entry.class);
+                        undrained.put(entry.reference(), entry);
+                    } else if (line.startsWith("D ") || line.startsWith("X ")) {
+                        undrained.remove(UUID.fromString(line.substring(2)));
+                    }
+                } catch (JsonProcessingException | IllegalArgumentException e) {
+                    // Una última línea a medias es un alta que nunca se confirmó al cliente (sin fsync)
+                    if (i < lines.size() - 1) {
+                        throw new IllegalStateException("Journal de intake corrupto en la línea " + (i + 1), e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el journal de intake " + journalPath, e);
+        }
+
+        // Nunca se descarta lo pendiente: si no cabe, el arranque falla (con el journal intacto) hasta ampliar la capacidad
+        if (undrained.size() > queue.remainingCapacity()) {
+            throw new IllegalStateException("users.tickets.intake.capacity es menor que el journal pendiente ("
+                    + undrained.size() + ")");
+        }
+        // Se reescribe compactado en un temporal y se renombra: una caída a mitad deja el journal original
+        Path compacted = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : undrained.values()) {
+                write(channel, "A " + toJson(entry));
+            }
+            channel.force(false);
+            Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo compactar el journal de intake " + journalPath, e);
+        }
+        for (Entry entry : undrained.values()) {
+            pending.put(entry.reference(), entry);
+            queue.add(entry);
+        }
+    }
+
+    private void readDeadLetters() {
+        if (!Files.exists(deadLetterPath)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(deadLetterPath, StandardCharsets.UTF_8)) {
+                try {
+                    deadLettered.add(objectMapper.readValue(line, DeadLetter.class).reference());
+                } catch (JsonProcessingException e) {
+                    // Línea a medias de una caída: su alta sigue en el journal y se volverá a apartar
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el dead-letter de intake " + deadLetterPath, e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        drainer = new Thread(this::drainLoop, "ticket-intake-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            drainer.interrupt();
+            drainer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        synchronized (journalLock) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException ignored) {
+                    // lo pendiente ya está en disco; se reencola en el siguiente arranque
+                }
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Anota el ticket (ya validado) en el journal y lo encola. Vacío si la cola está llena.
+     */
+    public Optional<UUID> accept(TicketCreateRequest request) {
+        synchronized (journalLock) {
+            if (queue.remainingCapacity() == 0) {
+                rejected.increment();
+                return Optional.empty();
+            }
+            Entry entry = new Entry(UUID.randomUUID(), System.currentTimeMillis(), request);
+            append("A " + toJson(entry));
+            force();
+            pending.put(entry.reference(), entry);
+            // Solo el drenador saca elementos, así que con capacidad comprobada bajo el lock no puede fallar
+            queue.add(entry);
+            return Optional.of(entry.reference());
+        }
+    }
+
+    public Optional<TicketIntakeResponse> status(UUID reference) {
+        if (pending.containsKey(reference)) {
+            return Optional.of(new TicketIntakeResponse(reference, TicketIntakeResponse.Status.QUEUED, null));
+        }
+        if (deadLettered.contains(reference)) {
+            return Optional.of(new TicketIntakeResponse(reference, TicketIntakeResponse.Status.FAILED, null));
+        }
+        return ticketBatchRepository.findIdByIntakeReference(reference)
+                .map(id -> new TicketIntakeResponse(reference, TicketIntakeResponse.Status.CREATED, id));
+    }
+
+    public int backlog() {
+        return pending.size();
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    Entry first = queue.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatch - 1);
+                }
+                drain(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Base de datos caída o similar: se reintenta lo que quede del lote; el journal lo conserva mientras tanto
+                drainFailures.increment();
+                batch.removeIf(entry -> !pending.containsKey(entry.reference()));
+                try {
+                    Thread.sleep(retryBackoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserta el lote; si falla por algo que no es la base de datos, fila a fila, apartando al
+     * dead-letter las que vuelven a fallar. Los fallos de base de datos se propagan para reintentar
+     * tras retry-backoff (lo ya drenado o apartado sale de pending y no se repite).
+     */
+    void drain(List<Entry> batch) {
+        try {
+            insert(batch);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            drainFailures.increment();
+            if (batch.size() == 1) {
+                deadLetter(batch.get(0), e);
+                return;
+            }
+            for (Entry entry : batch) {
+                try {
+                    insert(List.of(entry));
+                } catch (RuntimeException rowError) {
+                    if (isTransient(rowError)) {
+                        throw rowError;
+                    }
+                    deadLetter(entry, rowError);
+                }
+            }
+        }
+    }
+
+    // Fallos que no dependen de las filas: reintentarlas fila a fila no ayudaría
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException
+                || e instanceof UncheckedIOException;
+    }
+
+    /**
+     * Inserta un lote en una transacción, publica los CREATED y lo marca como drenado en el journal.
+     * Tras una caída entre el INSERT y la marca, el reproceso puede repetir algún CREATED;
+     * la reconciliación periódica de TicketStatsService lo corrige.
+     */
+    private void insert(List<Entry> batch) {
+        List<TicketSupport> tickets = ticketBulkService.toTickets(batch.stream().map(Entry::request).toList());
+        List<UUID> references = batch.stream().map(Entry::reference).toList();
+        Map<UUID, Integer> ids = ticketBatchRepository.insertIntake(tickets, references);
+
+        ticketJdbcRepository.findAllByIds(new ArrayList<>(ids.values()))
+                .forEach(ticket -> eventPublisher.publishEvent(TicketChangedEvent.created(ticket)));
+
+        long now = System.currentTimeMillis();
+        batch.forEach(entry -> drainLatency.record(now - entry.acceptedAt(), TimeUnit.MILLISECONDS));
+        markDrained(references);
+    }
+
+    private void markDrained(List<UUID> references) {
+        synchronized (journalLock) {
+            references.forEach(pending::remove);
+            if (pending.isEmpty()) {
+                truncateJournal();
+            } else {
+                references.forEach(reference -> append("D " + reference));
+            }
+            force();
+        }
+    }
+
+    // Primero el dead-letter (con fsync) y después la marca "X": una caída entre ambos solo lo repite
+    private void deadLetter(Entry entry, RuntimeException error) {
+        synchronized (journalLock) {
+            try (FileChannel channel = FileChannel.open(deadLetterPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                write(channel, toJson(new DeadLetter(entry.reference(), entry.acceptedAt(), entry.request(),
+                        String.valueOf(error))));
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo escribir el dead-letter de intake " + deadLetterPath, e);
+            }
+            deadLettered.add(entry.reference());
+            pending.remove(entry.reference());
+            if (pending.isEmpty()) {
+                truncateJournal();
+            } else {
+                append("X " + entry.reference());
+            }
+            force();
+        }
+        deadLetters.increment();
+    }
+
+    // Los métodos de journal se llaman siempre con journalLock tomado
+
+    private FileChannel journal() throws IOException {
+        if (journal == null) {
+            Path parent = journalPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return journal;
+    }
+
+    private void append(String line) {
+        try {
+            write(journal(), line);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el journal de intake " + journalPath, e);
+        }
+    }
+
+    private static void write(FileChannel channel, String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void force() {
+        try {
+            if (journal != null) {
+                journal.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo sincronizar el journal de intake " + journalPath, e);
+        }
+    }
+
+    private void truncateJournal() {
+        try {
+            journal().truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo vaciar el journal de intake " + journalPath, e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    record Entry(UUID reference, long acceptedAt, TicketCreateRequest request) {}
+
+    record DeadLetter(UUID reference, long acceptedAt, TicketCreateRequest request, String error) {}
+}
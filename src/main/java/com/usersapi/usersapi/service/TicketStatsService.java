@@ -0,0 +1,198 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.dto.TicketStatsResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.repository.TicketJdbcRepository;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.CountSnapshot;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.TicketCount;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.TicketState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recuentos de tickets por estado, por asignado y por usuario de planifika, mantenidos en memoria
+ * a partir de los TicketChangedEvent. Un GROUP BY periódico los reconcilia con la base de datos
+ * (corrige cambios hechos fuera de la API o eventos perdidos entre reconciliaciones).
+ * Los tickets sin estado no se cuentan; los sin asignado no aparecen en byDrimsoftUser.
+ * <p>
+ * Los eventos que llegan durante una reconciliación se agrupan por ticket y, al terminar, cada ticket
+ * aporta un único delta sobre los contadores nuevos: sale del estado que tenía en la instantánea y
+ * entra en el de su evento más reciente, solo si este tiene una versión posterior (cada escritura
+ * incrementa ticketsupport.version). Así una transición que se cruza con la consulta no se cuenta
+ * dos veces aunque llegue antes o después de leer las versiones.
+ */
+@Service
+public class TicketStatsService {
+
+    private final TicketJdbcRepository ticketJdbcRepository;
+    private volatile Counters counters = new Counters(Instant.EPOCH);
+
+    // Eventos recibidos durante la reconciliación en curso, por ticket (null fuera de ella); protegido por eventLock
+    private final Object eventLock = new Object();
+    private Map<Integer, List<TicketChangedEvent>> duringReconcile;
+
+    public TicketStatsService(TicketJdbcRepository ticketJdbcRepository) {
+        this.ticketJdbcRepository = ticketJdbcRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Recalcula los contadores desde la base de datos y los publica de forma atómica, con los
+     * eventos recibidos mientras tanto que la instantánea aún no reflejaba.
+     */
+    @Scheduled(fixedDelayString = "${users.tickets.stats.reconcile-interval:5m}",
+            initialDelayString = "${users.tickets.stats.reconcile-interval:5m}")
+    public synchronized void reconcile() {
+        synchronized (eventLock) {
+            duringReconcile = new LinkedHashMap<>();
+        }
+        Counters loaded = new Counters(Instant.now());
+        CountSnapshot snapshot;
+        try {
+            snapshot = ticketJdbcRepository.countSnapshot(this::ticketsTouchedDuringReconcile);
+        } catch (RuntimeException e) {
+            synchronized (eventLock) {
+                duringReconcile = null;
+            }
+            throw e;
+        }
+        for (TicketCount row : snapshot.counts()) {
+            loaded.add(row.idTicketStatus(), row.idDrimsoftUser(), row.idPlanifikaUser(), row.count());
+        }
+        synchronized (eventLock) {
+            duringReconcile.forEach((ticketId, events) -> applyNet(loaded, snapshot.tickets().get(ticketId), events));
+            duringReconcile = null;
+            counters = loaded;
+        }
+    }
+
+    @EventListener
+    public void onTicketChanged(TicketChangedEvent event) {
+        synchronized (eventLock) {
+            if (duringReconcile != null) {
+                duringReconcile.computeIfAbsent(event.ticket().getIdtickets(), id -> new ArrayList<>()).add(event);
+            }
+            apply(counters, event);
+        }
+    }
+
+    private Collection<Integer> ticketsTouchedDuringReconcile() {
+        synchronized (eventLock) {
+            return List.copyOf(duringReconcile.keySet());
+        }
+    }
+
+    private static void apply(Counters target, TicketChangedEvent event) {
+        TicketResponse ticket = event.ticket();
+        if (event.type() != TicketChangedEvent.Type.CREATED) {
+            target.add(event.previousStatusId(), event.previousDrimsoftUserId(), ticket.getIdplanifikauser(), -1);
+        }
+        target.add(ticket.getIdticketstatus(), ticket.getIddrimsoftuser(), ticket.getIdplanifikauser(), 1);
+    }
+
+    // Un solo delta por ticket. Sin fila en la instantánea (el ticket aún no existía o su primer evento
+    // llegó después de leerlas) se parte del estado previo al evento más antiguo
+    private static void applyNet(Counters target, TicketState inSnapshot, List<TicketChangedEvent> events) {
+        TicketChangedEvent oldest = events.get(0);
+        TicketChangedEvent newest = events.get(0);
+        for (TicketChangedEvent event : events) {
+            if (newer(event, newest)) {
+                newest = event;
+            }
+            if (newer(oldest, event)) {
+                oldest = event;
+            }
+        }
+        TicketResponse latest = newest.ticket();
+        if (inSnapshot != null) {
+            if (latest.getVersion() != null && inSnapshot.version() >= latest.getVersion()) {
+                return;
+            }
+            target.add(inSnapshot.idTicketStatus(), inSnapshot.idDrimsoftUser(), inSnapshot.idPlanifikaUser(), -1);
+        } else if (oldest.type() != TicketChangedEvent.Type.CREATED) {
+            target.add(oldest.previousStatusId(), oldest.previousDrimsoftUserId(), oldest.ticket().getIdplanifikauser(), -1);
+        }
+        target.add(latest.getIdticketstatus(), latest.getIddrimsoftuser(), latest.getIdplanifikauser(), 1);
+    }
+
+    // Un evento sin versión se toma como el más reciente
+    private static boolean newer(TicketChangedEvent a, TicketChangedEvent b) {
+        Long va = a.ticket().getVersion();
+        Long vb = b.ticket().getVersion();
+        return va == null || vb != null && va > vb;
+    }
+
+    public TicketStatsResponse stats() {
+        Counters current = counters;
+        return new TicketStatsResponse(
+                totals(current.byStatus),
+                grouped(current.byDrimsoftUser),
+                grouped(current.byPlanifikaUser),
+                current.reconciledAt);
+    }
+
+    private static Map<Integer, Long> totals(Map<Integer, LongAdder> counts) {
+        Map<Integer, Long> result = new TreeMap<>();
+        counts.forEach((statusId, count) -> {
+            long value = count.sum();
+            if (value != 0) {
+                result.put(statusId, value);
+            }
+        });
+        return result;
+    }
+
+    private static Map<Integer, Map<Integer, Long>> grouped(Map<Bucket, LongAdder> counts) {
+        Map<Integer, Map<Integer, Long>> result = new TreeMap<>();
+        counts.forEach((bucket, count) -> {
+            long value = count.sum();
+            if (value != 0) {
+                result.computeIfAbsent(bucket.id(), id -> new TreeMap<>()).put(bucket.statusId(), value);
+            }
+        });
+        return result;
+    }
+
+    private record Bucket(int id, int statusId) {}
+
+    private static final class Counters {
+        final Map<Integer, LongAdder> byStatus = new ConcurrentHashMap<>();
+        final Map<Bucket, LongAdder> byDrimsoftUser = new ConcurrentHashMap<>();
+        final Map<Bucket, LongAdder> byPlanifikaUser = new ConcurrentHashMap<>();
+        final Instant reconciledAt;
+
+        Counters(Instant reconciledAt) {
+            this.reconciledAt = reconciledAt;
+        }
+
+        void add(Integer statusId, Integer drimsoftUserId, Integer planifikaUserId, long delta) {
+            if (statusId == null) {
+                return;
+            }
+            byStatus.computeIfAbsent(statusId, k -> new LongAdder()).add(delta);
+            if (drimsoftUserId != null) {
+                byDrimsoftUser.computeIfAbsent(new Bucket(drimsoftUserId, statusId), k -> new LongAdder()).add(delta);
+            }
+            if (planifikaUserId != null) {
+                byPlanifikaUser.computeIfAbsent(new Bucket(planifikaUserId, statusId), k -> new LongAdder()).add(delta);
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.usersapi.usersapi.service;
 
 import com.usersapi.usersapi.model.TicketStatus;
-import com.usersapi.usersapi.repository.TicketStatusRepository;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -10,21 +9,21 @@ import java.util.Optional;
 @Service
 public class TicketStatusService {
 
-    private final TicketStatusRepository ticketStatusRepository;
+    private final ReferenceDataService referenceDataService;
 
-    public TicketStatusService(TicketStatusRepository ticketStatusRepository) {
-        this.ticketStatusRepository = ticketStatusRepository;
+    public TicketStatusService(ReferenceDataService referenceDataService) {
+        this.referenceDataService = referenceDataService;
     }
 
     public Optional<TicketStatus> findById(Integer id) {
-        return ticketStatusRepository.findById(id);
+        return referenceDataService.findTicketStatus(id);
     }
 
     public Optional<TicketStatus> findByName(String name) {
-        return ticketStatusRepository.findByNameIgnoreCase(name);
+        return referenceDataService.findTicketStatusByName(name);
     }
 
     public List<TicketStatus> findAll() {
-        return ticketStatusRepository.findAll();
+        return referenceDataService.findAllTicketStatuses();
     }
 }
@@ -1,10 +1,22 @@
 package com.usersapi.usersapi.service;
 
+import com.usersapi.usersapi.dto.PageResponse;
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.event.TicketChangedEvent.Type;
+import com.usersapi.usersapi.exception.ResourceNotFoundException;
+import com.usersapi.usersapi.exception.TicketStatusConflictException;
+import com.usersapi.usersapi.exception.TicketVersionConflictException;
 import com.usersapi.usersapi.model.TicketStatus;
 import com.usersapi.usersapi.model.TicketSupport;
 import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.repository.TicketJdbcRepository;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.Guard;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.Transition;
 import com.usersapi.usersapi.repository.TicketSupportRepository;
 import com.usersapi.usersapi.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,16 +25,26 @@ import java.util.Optional;
 @Service
 public class TicketSupportService {
 
+    private static final int STATUS_PENDING = 1;
+    private static final int STATUS_IN_PROGRESS = 2;
+    private static final int STATUS_ANSWERED = 3;
+
     private final TicketSupportRepository ticketSupportRepository;
     private final TicketStatusService ticketStatusService;
     private final UserRepository userRepository;
+    private final TicketJdbcRepository ticketJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public TicketSupportService(TicketSupportRepository ticketSupportRepository,
                                 TicketStatusService ticketStatusService,
-                                UserRepository userRepository) {
+                                UserRepository userRepository,
+                                TicketJdbcRepository ticketJdbcRepository,
+                                ApplicationEventPublisher eventPublisher) {
         this.ticketSupportRepository = ticketSupportRepository;
         this.ticketStatusService = ticketStatusService;
         this.userRepository = userRepository;
+        this.ticketJdbcRepository = ticketJdbcRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     public TicketSupport create(Integer idPlanifikaUser,
@@ -46,97 +68,131 @@ public class TicketSupportService {
         }
         if (status == null) {
             // Default to PENDING (ID: 1)
-            status = ticketStatusService.findById(1).orElse(null);
+            status = ticketStatusService.findById(STATUS_PENDING).orElse(null);
         }
         ticket.setStatus(status);
 
-        return ticketSupportRepository.save(ticket);
+        TicketSupport saved = ticketSupportRepository.save(ticket);
+        eventPublisher.publishEvent(TicketChangedEvent.created(toResponse(saved)));
+        return saved;
     }
 
-    public Optional<TicketSupport> findById(Integer id) {
-        return ticketSupportRepository.findById(id);
+    // Proyección en una sola consulta (sin los grafos EAGER de la entidad)
+    public Optional<TicketResponse> findResponseById(Integer id) {
+        return ticketSupportRepository.findResponseById(id);
     }
 
-    public List<TicketSupport> findAll() {
-        return ticketSupportRepository.findAll();
+    /**
+     * Página de tickets con id mayor que afterId (null = desde el principio), ordenados por id.
+     */
+    public List<TicketResponse> findPage(Integer statusId, Integer drimsoftUserId, Integer planifikaUserId,
+                                         Integer afterId, int limit) {
+        return ticketSupportRepository.findPage(statusId, drimsoftUserId, planifikaUserId, afterId, Limit.of(limit));
     }
 
-    public List<TicketSupport> findByPlanifikaUser(Integer idPlanifikaUser) {
-        return ticketSupportRepository.findByIdPlanifikaUser(idPlanifikaUser);
+    public PageResponse<TicketResponse> search(String query, Integer statusId, Integer drimsoftUserId,
+                                               int page, int size) {
+        return ticketJdbcRepository.search(query, statusId, drimsoftUserId, page, size);
     }
 
-    public List<TicketSupport> findByDrimsoftUser(Integer idUser) {
-        return ticketSupportRepository.findByDrimsoftUser_IdUser(idUser);
+    // expectedStatusId / expectedVersion: compare-and-set opcional (null = sin comprobar)
+    public TicketResponse updateAnswer(Integer ticketId, String answer, Integer idDrimsoftUser,
+                                       Integer expectedStatusId, Long expectedVersion) {
+        // Cambiar estado a ANSWERED; si no existe en el catálogo se conserva el actual
+        Integer answered = knownStatus(STATUS_ANSWERED);
+        Guard guard = new Guard(expectedStatusId, expectedVersion);
+        return applied(Type.ANSWERED,
+                ticketJdbcRepository.updateAnswer(ticketId, answer, idDrimsoftUser, answered, guard),
+                ticketId, guard, null);
     }
 
-    public TicketSupport updateAnswer(Integer ticketId, String answer, Integer idDrimsoftUser) {
-        TicketSupport ticket = ticketSupportRepository.findById(ticketId)
-                .orElseThrow(() -> new RuntimeException("Ticket no encontrado"));
-
-        ticket.setAnswer(answer);
-
-        // Asignar usuario si se proporciona
-        if (idDrimsoftUser != null) {
-            Optional<UserDrimsoft> userOpt = userRepository.findById(idDrimsoftUser);
-            userOpt.ifPresent(ticket::setDrimsoftUser);
-        }
-
-        // Cambiar estado a ANSWERED (ID: 3)
-        TicketStatus answeredStatus = ticketStatusService.findById(3).orElse(null);
-
-        if (answeredStatus != null) {
-            ticket.setStatus(answeredStatus);
+    public TicketResponse updateStatus(Integer ticketId, Integer statusId, Integer expectedStatusId,
+                                       Long expectedVersion) {
+        if (knownStatus(statusId) == null) {
+            throw new ResourceNotFoundException("Estado no encontrado con ID: " + statusId);
         }
-
-        return ticketSupportRepository.save(ticket);
+        Guard guard = new Guard(expectedStatusId, expectedVersion);
+        return applied(Type.STATUS_CHANGED, ticketJdbcRepository.updateStatus(ticketId, statusId, guard),
+                ticketId, guard, null);
     }
 
-    public TicketSupport updateStatus(Integer ticketId, Integer statusId) {
-        System.out.println("DEBUG: Buscando ticket ID: " + ticketId);
-        TicketSupport ticket = ticketSupportRepository.findById(ticketId)
-                .orElseThrow(() -> new RuntimeException("Ticket no encontrado con ID: " + ticketId));
-
-        System.out.println("DEBUG: Ticket encontrado. Buscando estado ID: " + statusId);
-        TicketStatus status = ticketStatusService.findById(statusId)
-                .orElseThrow(() -> new RuntimeException("Estado no encontrado con ID: " + statusId));
-
-        System.out.println("DEBUG: Estado encontrado: " + status.getName());
-        ticket.setStatus(status);
-        TicketSupport saved = ticketSupportRepository.save(ticket);
-        System.out.println("DEBUG: Ticket actualizado exitosamente");
-        return saved;
+    public TicketResponse assignUser(Integer ticketId, Integer idDrimsoftUser, Integer expectedStatusId,
+                                     Long expectedVersion) {
+        Guard guard = new Guard(expectedStatusId, expectedVersion);
+        return applied(Type.ASSIGNED,
+                ticketJdbcRepository.assignUser(ticketId, idDrimsoftUser, knownStatus(STATUS_IN_PROGRESS), guard),
+                ticketId, guard, "Usuario no encontrado con ID: " + idDrimsoftUser);
     }
 
-    public TicketSupport assignUser(Integer ticketId, Integer idDrimsoftUser) {
-        TicketSupport ticket = ticketSupportRepository.findById(ticketId)
-                .orElseThrow(() -> new RuntimeException("Ticket no encontrado"));
-
-        UserDrimsoft user = userRepository.findById(idDrimsoftUser)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
-
-        ticket.setDrimsoftUser(user);
-
-        // Cambiar a estado IN_PROGRESS (ID: 2)
-        TicketStatus inProgressStatus = ticketStatusService.findById(2).orElse(ticket.getStatus());
+    public TicketResponse markAsRead(Integer ticketId, Integer idDrimsoftUser, Integer expectedStatusId,
+                                     Long expectedVersion) {
+        Guard guard = new Guard(expectedStatusId, expectedVersion);
+        return applied(Type.READ,
+                ticketJdbcRepository.markAsRead(ticketId, idDrimsoftUser, knownStatus(STATUS_IN_PROGRESS), guard),
+                ticketId, guard, null);
+    }
 
-        ticket.setStatus(inProgressStatus);
-        return ticketSupportRepository.save(ticket);
+    /**
+     * Cola de trabajo: toma el ticket PENDING más antiguo (opcionalmente de un usuario de planifika),
+     * lo asigna al agente y lo pasa a IN_PROGRESS. Vacío si no queda ninguno libre.
+     */
+    public Optional<TicketResponse> claimNext(Integer idDrimsoftUser, Integer idPlanifikaUser) {
+        if (!userRepository.existsById(idDrimsoftUser)) {
+            throw new ResourceNotFoundException("Usuario no encontrado con ID: " + idDrimsoftUser);
+        }
+        return ticketJdbcRepository.claimNext(STATUS_PENDING, idPlanifikaUser, idDrimsoftUser, STATUS_IN_PROGRESS)
+                .map(transition -> {
+                    eventPublisher.publishEvent(new TicketChangedEvent(Type.ASSIGNED, transition.ticket(),
+                            transition.previous().idTicketStatus(), transition.previous().idDrimsoftUser()));
+                    return transition.ticket();
+                });
     }
 
-    public TicketSupport markAsRead(Integer ticketId, Integer idDrimsoftUser) {
-        TicketSupport ticket = ticketSupportRepository.findById(ticketId)
-                .orElseThrow(() -> new RuntimeException("Ticket no encontrado"));
+    // Los estados se validan contra el snapshot en memoria, sin ir a la base de datos
+    private Integer knownStatus(Integer statusId) {
+        return ticketStatusService.findById(statusId).map(TicketStatus::getIdTicketStatus).orElse(null);
+    }
 
-        // Asignar usuario si se proporciona
-        if (idDrimsoftUser != null) {
-            Optional<UserDrimsoft> userOpt = userRepository.findById(idDrimsoftUser);
-            userOpt.ifPresent(ticket::setDrimsoftUser);
+    /**
+     * Publica el cambio si el UPDATE se aplicó; si no afectó a ninguna fila, averigua el motivo
+     * (solo en el camino de error).
+     */
+    private TicketResponse applied(Type type, Optional<Transition> updated, Integer ticketId,
+                                   Guard guard, String guardFailureMessage) {
+        if (updated.isPresent()) {
+            Transition transition = updated.get();
+            eventPublisher.publishEvent(new TicketChangedEvent(type, transition.ticket(),
+                    transition.previous().idTicketStatus(), transition.previous().idDrimsoftUser()));
+            return transition.ticket();
         }
+        TicketJdbcRepository.CurrentState state = ticketJdbcRepository.findCurrentState(ticketId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ticket no encontrado con ID: " + ticketId));
+        if (guard.expectedVersion() != null && guard.expectedVersion() != state.version()) {
+            throw new TicketVersionConflictException(ticketId, guard.expectedVersion(), state.version());
+        }
+        if (guard.expectedStatusId() != null && !guard.expectedStatusId().equals(state.idTicketStatus())) {
+            throw new TicketStatusConflictException(ticketId, guard.expectedStatusId(), state.idTicketStatus());
+        }
+        throw new ResourceNotFoundException(guardFailureMessage != null
+                ? guardFailureMessage : "Ticket no encontrado con ID: " + ticketId);
+    }
 
-        // Cambiar a estado IN_PROGRESS (ID: 2)
-        TicketStatus readStatus = ticketStatusService.findById(2).orElse(ticket.getStatus());
-
-        ticket.setStatus(readStatus);
-        return ticketSupportRepository.save(ticket);
+    public static TicketResponse toResponse(TicketSupport t) {
+        TicketResponse r = new TicketResponse();
+        r.setIdtickets(t.getIdTickets());
+        r.setIdplanifikauser(t.getIdPlanifikaUser());
+        if (t.getStatus() != null) {
+            r.setIdticketstatus(t.getStatus().getIdTicketStatus());
+            r.setTicketstatusname(t.getStatus().getName());
+        }
+        r.setTitle(t.getTitle());
+        r.setDescription(t.getDescription());
+        r.setAnswer(t.getAnswer());
+        if (t.getDrimsoftUser() != null) {
+            r.setIddrimsoftuser(t.getDrimsoftUser().getIdUser());
+            r.setDrimsoftusername(t.getDrimsoftUser().getName());
+        }
+        r.setVersion(t.getVersion());
+        return r;
     }
 }
@@ -0,0 +1,132 @@
+package com.usersapi.usersapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria de la identidad de los usuarios (UserDrimsoft con su Role y UserStatus).
+ * Se indexa por idUser y por el UUID de Supabase; UserService la mantiene actualizada
+ * en cada escritura. Acotada por tamaño y TTL, expone hit/miss/evictions en Micrometer.
+ * <p>
+ * Guarda y entrega copias: quien modifica el usuario devuelto antes de save() (o si save() falla)
+ * no cambia lo que ven los demás lectores, como la resolución de roles.
+ */
+@Component
+public class UserIdentityCache {
+
+    private final Cache<Integer, UserDrimsoft> usersById;
+    private final Cache<UUID, Integer> idsBySupabaseUserId;
+
+    public UserIdentityCache(@Value("${users.identity-cache.max-size:10000}") long maxSize,
+                             @Value("${users.identity-cache.ttl:10m}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idsBySupabaseUserId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users.identity.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsBySupabaseUserId, "users.identity.by-supabase-id");
+    }
+
+    public Optional<UserDrimsoft> findById(Integer idUser, Supplier<Optional<UserDrimsoft>> loader) {
+        UserDrimsoft cached = usersById.getIfPresent(idUser);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+        return load(loader);
+    }
+
+    public Optional<UserDrimsoft> findBySupabaseUserId(UUID supabaseUserId, Supplier<Optional<UserDrimsoft>> loader) {
+        Integer idUser = idsBySupabaseUserId.getIfPresent(supabaseUserId);
+        if (idUser != null) {
+            UserDrimsoft cached = usersById.asMap().get(idUser);
+            if (cached != null && supabaseUserId.equals(cached.getSupabaseUserId())) {
+                return Optional.of(copy(cached));
+            }
+        }
+        return load(loader);
+    }
+
+    // Solo lectura de caché, sin cargar: las resoluciones en lote agrupan los fallos en una consulta
+    public Optional<UserDrimsoft> getIfPresent(Integer idUser) {
+        return Optional.ofNullable(usersById.getIfPresent(idUser)).map(UserIdentityCache::copy);
+    }
+
+    public Optional<UserDrimsoft> getIfPresent(UUID supabaseUserId) {
+        Integer idUser = idsBySupabaseUserId.getIfPresent(supabaseUserId);
+        if (idUser == null) {
+            return Optional.empty();
+        }
+        UserDrimsoft cached = usersById.asMap().get(idUser);
+        return cached != null && supabaseUserId.equals(cached.getSupabaseUserId())
+                ? Optional.of(copy(cached)) : Optional.empty();
+    }
+
+    /**
+     * Write-through: reemplaza la entrada del usuario (y su UUID si cambió).
+     */
+    public void put(UserDrimsoft user) {
+        if (user == null || user.getIdUser() == null) {
+            return;
+        }
+        UserDrimsoft previous = usersById.asMap().put(user.getIdUser(), copy(user));
+        if (previous != null && previous.getSupabaseUserId() != null
+                && !previous.getSupabaseUserId().equals(user.getSupabaseUserId())) {
+            idsBySupabaseUserId.invalidate(previous.getSupabaseUserId());
+        }
+        if (user.getSupabaseUserId() != null) {
+            idsBySupabaseUserId.put(user.getSupabaseUserId(), user.getIdUser());
+        }
+    }
+
+    public void evict(Integer idUser) {
+        if (idUser == null) {
+            return;
+        }
+        UserDrimsoft previous = usersById.asMap().remove(idUser);
+        if (previous != null && previous.getSupabaseUserId() != null) {
+            idsBySupabaseUserId.invalidate(previous.getSupabaseUserId());
+        }
+    }
+
+    public void evictAll() {
+        usersById.invalidateAll();
+        idsBySupabaseUserId.invalidateAll();
+    }
+
+    // Los usuarios inexistentes no se cachean: pueden darse de alta en cualquier momento
+    private Optional<UserDrimsoft> load(Supplier<Optional<UserDrimsoft>> loader) {
+        Optional<UserDrimsoft> loaded = loader.get();
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    // Copia superficial: Role y UserStatus son datos de referencia compartidos que no se modifican,
+    // los cambios de rol/estado reemplazan la referencia del usuario
+    private static UserDrimsoft copy(UserDrimsoft user) {
+        UserDrimsoft copy = new UserDrimsoft();
+        copy.setIdUser(user.getIdUser());
+        copy.setName(user.getName());
+        copy.setSupabaseUserId(user.getSupabaseUserId());
+        copy.setRole(user.getRole());
+        copy.setStatus(user.getStatus());
+        return copy;
+    }
+}
@@ -0,0 +1,201 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.client.SupabaseAuthClient;
+import com.usersapi.usersapi.dto.UserProvisionRequest;
+import com.usersapi.usersapi.dto.UserProvisionResult;
+import com.usersapi.usersapi.dto.UserProvisionResult.Outcome;
+import com.usersapi.usersapi.event.UserRoleChangedEvent;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.repository.UserBatchRepository;
+import com.usersapi.usersapi.exception.SupabaseUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Alta masiva: crea los usuarios en Supabase (admin API, concurrencia acotada) e inserta las filas
+ * de userdrimsoft por lotes con batching JDBC (hasta users.jdbc.batch-size filas o
+ * users.provisioning.batch-window de espera). Cada resultado se emite en cuanto se conoce: los
+ * INVALID y SUPABASE_ERROR al terminar su llamada, los CREATED y DB_ERROR al cerrar su lote.
+ * No es una única transacción: cada lote se confirma por separado, así que un fallo revierte solo
+ * su lote y los anteriores se conservan; el campo batch de cada resultado indica qué filas van juntas.
+ * Los errores devueltos al cliente son genéricos; el detalle solo va al log. Tras cada lote guardado
+ * se publica UserRoleChangedEvent por usuario con rol, para replicarlo en Supabase.
+ */
+@Service
+public class UserProvisioningService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserProvisioningService.class);
+
+    private final SupabaseAuthClient supabaseAuthClient;
+    private final UserBatchRepository userBatchRepository;
+    private final ReferenceDataService referenceDataService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Scheduler jdbcScheduler;
+    private final int maxUsers;
+    private final int concurrency;
+    private final int batchSize;
+    private final Duration batchWindow;
+
+    public UserProvisioningService(SupabaseAuthClient supabaseAuthClient,
+                                   UserBatchRepository userBatchRepository,
+                                   ReferenceDataService referenceDataService,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Qualifier("jdbcScheduler") Scheduler jdbcScheduler,
+                                   @Value("${users.provisioning.max-users:5000}") int maxUsers,
+                                   @Value("${users.provisioning.concurrency:8}") int concurrency,
+                                   @Value("${users.jdbc.batch-size:500}") int batchSize,
+                                   @Value("${users.provisioning.batch-window:200ms}") Duration batchWindow) {
+        this.supabaseAuthClient = supabaseAuthClient;
+        this.userBatchRepository = userBatchRepository;
+        this.referenceDataService = referenceDataService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcScheduler = jdbcScheduler;
+        this.maxUsers = maxUsers;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+    }
+
+    /**
+     * Devuelve un resultado por usuario a medida que terminan; index es su posición en la petición.
+     * Lanza IllegalArgumentException si la lista está vacía o supera el máximo permitido.
+     */
+    public Flux<UserProvisionResult> provision(List<UserProvisionRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Debe enviar al menos un usuario");
+        }
+        if (requests.size() > maxUsers) {
+            throw new IllegalArgumentException("Máximo " + maxUsers + " usuarios por petición");
+        }
+
+        return Flux.range(0, requests.size())
+                .flatMap(i -> createInSupabase(i, requests.get(i)), concurrency)
+                .publish(pending -> Flux.merge(
+                        pending.filter(p -> p.supabaseUserId() == null).map(Pending::failedResult),
+                        pending.filter(p -> p.supabaseUserId() != null)
+                                .bufferTimeout(batchSize, batchWindow)
+                                .index()
+                                .concatMap(batch -> Mono.fromCallable(() -> insertCreated(batch.getT1().intValue(), batch.getT2()))
+                                        .subscribeOn(jdbcScheduler)
+                                        .flatMapIterable(results -> results))));
+    }
+
+    private Mono<Pending> createInSupabase(int index, UserProvisionRequest request) {
+        String invalid = validate(request);
+        if (invalid != null) {
+            return Mono.just(Pending.failed(index, request, Outcome.INVALID, invalid));
+        }
+
+        Map<String, Object> metadata = request.getName() != null
+                ? Map.of("name", request.getName(), "full_name", request.getName())
+                : Map.of();
+        return supabaseAuthClient.adminCreateUser(request.getEmail(), request.getPassword(), metadata)
+                .map(created -> {
+                    Object id = created.get("id");
+                    return id != null
+                            ? Pending.created(index, request, UUID.fromString(id.toString()))
+                            : Pending.failed(index, request, Outcome.SUPABASE_ERROR, "Supabase no devolvió el id del usuario");
+                })
+                .onErrorResume(e -> {
+                    log.warn("Alta en Supabase fallida (index {})", index, e);
+                    return Mono.just(Pending.failed(index, request, Outcome.SUPABASE_ERROR, supabaseError(e)));
+                });
+    }
+
+    // Sin el mensaje original: puede llevar el cuerpo de la respuesta de Supabase
+    private static String supabaseError(Throwable e) {
+        if (e instanceof WebClientResponseException response) {
+            return "Supabase rechazó el alta (HTTP " + response.getStatusCode().value() + ")";
+        }
+        if (e instanceof SupabaseUnavailableException) {
+            return "Supabase no disponible";
+        }
+        return "Error al crear el usuario en Supabase";
+    }
+
+    private String validate(UserProvisionRequest request) {
+        if (request.getEmail() == null || request.getEmail().isBlank()
+                || request.getPassword() == null || request.getPassword().isBlank()) {
+            return "email y password son obligatorios";
+        }
+        if (request.getIdrole() != null && referenceDataService.findRole(request.getIdrole()).isEmpty()) {
+            return "Rol no encontrado con ID: " + request.getIdrole();
+        }
+        if (request.getIduserstatus() != null && referenceDataService.findUserStatus(request.getIduserstatus()).isEmpty()) {
+            return "Estado no encontrado con ID: " + request.getIduserstatus();
+        }
+        return null;
+    }
+
+    // Un lote de cuentas ya creadas en Supabase, en una transacción propia
+    private List<UserProvisionResult> insertCreated(int batch, List<Pending> created) {
+        List<UserDrimsoft> rows = new ArrayList<>(created.size());
+        for (Pending p : created) {
+            UserDrimsoft user = new UserDrimsoft();
+            user.setName(p.request().getName());
+            user.setSupabaseUserId(p.supabaseUserId());
+            referenceDataService.findRole(p.request().getIdrole()).ifPresent(user::setRole);
+            referenceDataService.findUserStatus(p.request().getIduserstatus()).ifPresent(user::setStatus);
+            rows.add(user);
+        }
+
+        boolean failed = false;
+        try {
+            userBatchRepository.insertAll(rows);
+        } catch (RuntimeException e) {
+            // El lote se revierte; las cuentas de Supabase ya existen y se devuelven con su
+            // supabaseuserid para poder reintentar solo la parte de base de datos
+            log.warn("Inserción en userdrimsoft fallida para un lote de {} usuarios", rows.size(), e);
+            failed = true;
+        }
+        if (!failed) {
+            // insertAll ya confirmó su transacción
+            for (UserDrimsoft user : rows) {
+                String role = UserService.effectiveRole(user);
+                if (role != null) {
+                    eventPublisher.publishEvent(new UserRoleChangedEvent(user.getIdUser(), user.getSupabaseUserId(), role));
+                }
+            }
+        }
+
+        List<UserProvisionResult> results = new ArrayList<>(created.size());
+        for (int i = 0; i < created.size(); i++) {
+            Pending p = created.get(i);
+            results.add(failed
+                    ? new UserProvisionResult(p.index(), p.request().getEmail(), Outcome.DB_ERROR, p.supabaseUserId(), null,
+                            "Error al guardar el usuario en la base de datos", batch)
+                    : new UserProvisionResult(p.index(), p.request().getEmail(), Outcome.CREATED, p.supabaseUserId(),
+                            rows.get(i).getIdUser(), null, batch));
+        }
+        return results;
+    }
+
+    private record Pending(int index, UserProvisionRequest request, UUID supabaseUserId, Outcome outcome, String error) {
+
+        static Pending created(int index, UserProvisionRequest request, UUID supabaseUserId) {
+            return new Pending(index, request, supabaseUserId, Outcome.CREATED, null);
+        }
+
+        static Pending failed(int index, UserProvisionRequest request, Outcome outcome, String error) {
+            return new Pending(index, request, null, outcome, error);
+        }
+
+        UserProvisionResult failedResult() {
+            return new UserProvisionResult(index, request.getEmail(), outcome, null, null, error);
+        }
+    }
+}
@@ -1,54 +1,184 @@
 package com.usersapi.usersapi.service;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import com.usersapi.usersapi.dto.PageResponse;
+import com.usersapi.usersapi.dto.UserSummaryDto;
+import com.usersapi.usersapi.event.UserRoleChangedEvent;
 import com.usersapi.usersapi.model.Role;
 import com.usersapi.usersapi.model.UserDrimsoft;
 import com.usersapi.usersapi.model.UserStatus;
-import com.usersapi.usersapi.repository.RoleRepository;
 import com.usersapi.usersapi.repository.UserRepository;
-import com.usersapi.usersapi.repository.UserStatusRepository;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 public class UserService {
 
+    // Estado asignado por la eliminación lógica (DELETE /users/{id})
+    public static final int STATUS_DELETED = 3;
+
+    // Campos por los que se puede ordenar el listado -> ruta JPQL (r = rol, s = estado)
+    private static final Map<String, String> SORTABLE = Map.of(
+            "id", "idUser",
+            "name", "name",
+            "role", "r.name",
+            "status", "s.name");
+
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
-    private final UserStatusRepository userStatusRepository;
+    private final ReferenceDataService referenceDataService;
+    private final UserIdentityCache identityCache;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserService(UserRepository userRepository, RoleRepository roleRepository, UserStatusRepository userStatusRepository) {
+    public UserService(UserRepository userRepository, ReferenceDataService referenceDataService,
+                       UserIdentityCache identityCache, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
-        this.userStatusRepository = userStatusRepository;
+        this.referenceDataService = referenceDataService;
+        this.identityCache = identityCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Listado paginado proyectado a DTO. sort es "campo" o "campo,desc" (id, name, role, status);
+     * idUser desempata para que la paginación sea estable. Lanza IllegalArgumentException si el campo
+     * no está permitido.
+     */
+    public PageResponse<UserSummaryDto> findPage(Integer roleId, Integer statusId, boolean includeDeleted,
+                                                 int page, int size, String sort) {
+        String[] parts = sort.split(",", 2);
+        String path = SORTABLE.get(parts[0].trim());
+        if (path == null) {
+            throw new IllegalArgumentException("Campo de ordenación no soportado: " + parts[0]);
+        }
+        Sort.Direction direction = parts.length > 1 && "desc".equalsIgnoreCase(parts[1].trim())
+                ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort order = Sort.by(direction, path);
+        if (!"idUser".equals(path)) {
+            order = order.and(Sort.by("idUser"));
+        }
+
+        Page<UserSummaryDto> result = userRepository.findSummaries(roleId, statusId,
+                includeDeleted ? null : STATUS_DELETED, PageRequest.of(page, size, order));
+        return new PageResponse<>(result.getContent(), page, size, result.getTotalElements());
+    }
+
+    /**
+     * Resolución en lote para otros servicios: sirve desde la caché de identidad y resuelve los que
+     * falten en una sola consulta, que además repuebla la caché. Las claves son el idUser o el UUID
+     * de Supabase tal como se pidieron; los usuarios inexistentes no aparecen.
+     */
+    public Map<String, UserSummaryDto> resolve(Collection<Integer> ids, Collection<UUID> supabaseUserIds) {
+        Map<String, UserSummaryDto> resolved = new LinkedHashMap<>();
+        Set<Integer> missingIds = new HashSet<>();
+        Set<UUID> missingSupabaseIds = new HashSet<>();
+        for (Integer id : ids) {
+            identityCache.getIfPresent(id).ifPresentOrElse(
+                    user -> resolved.put(id.toString(), toSummary(user)), () -> missingIds.add(id));
+        }
+        for (UUID supabaseUserId : supabaseUserIds) {
+            identityCache.getIfPresent(supabaseUserId).ifPresentOrElse(
+                    user -> resolved.put(supabaseUserId.toString(), toSummary(user)),
+                    () -> missingSupabaseIds.add(supabaseUserId));
+        }
+        if (missingIds.isEmpty() && missingSupabaseIds.isEmpty()) {
+            return resolved;
+        }
+
+        for (UserDrimsoft user : userRepository.findAllByIdsOrSupabaseUserIds(missingIds, missingSupabaseIds)) {
+            identityCache.put(user);
+            if (missingIds.contains(user.getIdUser())) {
+                resolved.put(user.getIdUser().toString(), toSummary(user));
+            }
+            if (user.getSupabaseUserId() != null && missingSupabaseIds.contains(user.getSupabaseUserId())) {
+                resolved.put(user.getSupabaseUserId().toString(), toSummary(user));
+            }
+        }
+        return resolved;
+    }
+
+    private static UserSummaryDto toSummary(UserDrimsoft user) {
+        Role role = user.getRole();
+        UserStatus status = user.getStatus();
+        return new UserSummaryDto(user.getIdUser(), user.getName(), user.getSupabaseUserId(),
+                role != null ? role.getIdRole() : null, role != null ? role.getName() : null,
+                status != null ? status.getIdUserStatus() : null, status != null ? status.getName() : null);
     }
 
-    public List<UserDrimsoft> findAll() { return userRepository.findAll(); }
+    public Optional<UserDrimsoft> findById(Integer id) {
+        return identityCache.findById(id, () -> userRepository.findById(id));
+    }
 
-    public Optional<UserDrimsoft> findById(Integer id) { return userRepository.findById(id); }
+    // Todas las escrituras pasan por aquí para mantener la caché de identidad coherente
+    public UserDrimsoft save(UserDrimsoft user) {
+        String before = user.getIdUser() == null ? null
+                : findById(user.getIdUser()).map(UserService::effectiveRole).orElse(null);
+        return save(user, before);
+    }
 
-    public UserDrimsoft save(UserDrimsoft user) { return userRepository.save(user); }
+    // Si cambia el rol efectivo se publica UserRoleChangedEvent para replicarlo en Supabase (app_metadata)
+    private UserDrimsoft save(UserDrimsoft user, String roleBefore) {
+        UserDrimsoft saved;
+        try {
+            saved = userRepository.save(user);
+            identityCache.put(saved);
+        } catch (RuntimeException e) {
+            identityCache.evict(user.getIdUser());
+            throw e;
+        }
+        String roleAfter = effectiveRole(saved);
+        if (!Objects.equals(roleBefore, roleAfter) && saved.getSupabaseUserId() != null) {
+            eventPublisher.publishEvent(new UserRoleChangedEvent(saved.getIdUser(), saved.getSupabaseUserId(), roleAfter));
+        }
+        return saved;
+    }
 
-    public void delete(Integer id) { userRepository.deleteById(id); }
+    public void delete(Integer id) {
+        userRepository.deleteById(id);
+        identityCache.evict(id);
+    }
 
     public UserDrimsoft updateRole(Integer userId, Integer roleId) {
         UserDrimsoft user = userRepository.findById(userId).orElseThrow();
-        Role role = roleRepository.findById(roleId).orElseThrow();
+        Role role = referenceDataService.findRole(roleId).orElseThrow();
+        String before = effectiveRole(user);
         user.setRole(role);
-        return userRepository.save(user);
+        return save(user, before);
     }
 
+    // Eliminar (o restaurar) cambia el rol efectivo: también se replica
     public UserDrimsoft updateStatus(Integer userId, Integer statusId) {
         UserDrimsoft user = userRepository.findById(userId).orElseThrow();
-        UserStatus status = userStatusRepository.findById(statusId).orElseThrow();
+        UserStatus status = referenceDataService.findUserStatus(statusId).orElseThrow();
+        String before = effectiveRole(user);
         user.setStatus(status);
-        return userRepository.save(user);
+        return save(user, before);
+    }
+
+    public static boolean isDeleted(UserDrimsoft user) {
+        return user.getStatus() != null && Integer.valueOf(STATUS_DELETED).equals(user.getStatus().getIdUserStatus());
+    }
+
+    // Rol que concede autorización: ninguno si está eliminado o no tiene rol
+    public static String effectiveRole(UserDrimsoft user) {
+        if (isDeleted(user) || user.getRole() == null) {
+            return null;
+        }
+        return user.getRole().getName();
     }
 
     public Optional<UserDrimsoft> findBySupabaseUserId(UUID supabaseUserId) {
-        return userRepository.findBySupabaseUserId(supabaseUserId);
+        return identityCache.findBySupabaseUserId(supabaseUserId,
+                () -> userRepository.findBySupabaseUserId(supabaseUserId));
     }
 }
\ No newline at end of file
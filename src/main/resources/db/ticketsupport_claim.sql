@@ -0,0 +1,5 @@
+-- Cola de trabajo de POST /tickets/claim: el ticket más antiguo de un estado sale del índice
+-- sin ordenar la tabla, y FOR UPDATE SKIP LOCKED salta las filas que otro agente está tomando.
+-- ddl-auto=none: ejecutar una vez en Supabase (SQL editor o psql) antes de desplegar.
+CREATE INDEX IF NOT EXISTS ix_ticketsupport_status_id
+    ON ticketsupport (idticketstatus, idtickets);
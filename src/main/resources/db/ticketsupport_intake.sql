@@ -0,0 +1,8 @@
+-- Referencia del intake asíncrono (POST /tickets con Prefer: respond-async).
+-- El índice único hace idempotente el drenado: reprocesar el journal local no duplica tickets.
+-- ddl-auto=none: ejecutar una vez en Supabase (SQL editor o psql) antes de desplegar.
+ALTER TABLE ticketsupport
+    ADD COLUMN IF NOT EXISTS intakereference uuid;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_ticketsupport_intakereference
+    ON ticketsupport (intakereference);
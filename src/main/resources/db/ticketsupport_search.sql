@@ -0,0 +1,13 @@
+-- Búsqueda full-text de tickets (GET /tickets/search).
+-- ddl-auto=none: ejecutar una vez en Supabase (SQL editor o psql) antes de desplegar.
+-- Pesos: título (A) > descripción (B) > respuesta (C).
+ALTER TABLE ticketsupport
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+        GENERATED ALWAYS AS (
+            setweight(to_tsvector('spanish', coalesce(title, '')), 'A') ||
+            setweight(to_tsvector('spanish', coalesce(description, '')), 'B') ||
+            setweight(to_tsvector('spanish', coalesce(answer, '')), 'C')
+        ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_ticketsupport_search_vector
+    ON ticketsupport USING GIN (search_vector);
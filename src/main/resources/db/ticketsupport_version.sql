@@ -0,0 +1,4 @@
+-- Versión optimista de tickets: respalda los ETag de GET /tickets y el If-Match de los PATCH.
+-- ddl-auto=none: ejecutar una vez en Supabase (SQL editor o psql) antes de desplegar.
+ALTER TABLE ticketsupport
+    ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,77 @@
+package com.usersapi.usersapi.client;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SupabaseUserLookupTest {
+
+    private SupabaseAuthClient client;
+    private SupabaseUserLookup lookup;
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        client = Mockito.mock(SupabaseAuthClient.class);
+        when(client.getUser(anyString())).thenAnswer(inv -> Mono.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            return Map.<String, Object>of("id", "u-1");
+        }).delayElement(Duration.ofMillis(100)));
+        lookup = new SupabaseUserLookup(client, Duration.ofSeconds(30), 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void concurrent_lookups_for_the_same_token_share_one_upstream_call() throws Exception {
+        String token = token(Instant.now().plusSeconds(3600));
+
+        Mono.zip(lookup.getUser(token), lookup.getUser(token), lookup.getUser(token)).block();
+        lookup.getUser(token).block();
+
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    @Test
+    void result_is_not_cached_past_token_expiry() throws Exception {
+        String token = token(Instant.now().plusMillis(150));
+
+        lookup.getUser(token).block();
+        Thread.sleep(200);
+        lookup.getUser(token).block();
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void invalidate_forces_a_fresh_lookup() throws Exception {
+        String token = token(Instant.now().plusSeconds(3600));
+
+        lookup.getUser(token).block();
+        lookup.invalidate(token);
+        lookup.getUser(token).block();
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    private String token(Instant exp) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256),
+                new JWTClaimsSet.Builder().subject("u-1").expirationTime(Date.from(exp)).build());
+        jwt.sign(new MACSigner("test-secret-test-secret-test-secret-32b"));
+        return jwt.serialize();
+    }
+}
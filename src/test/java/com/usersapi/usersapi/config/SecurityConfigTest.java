@@ -0,0 +1,111 @@
+package com.usersapi.usersapi.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.usersapi.usersapi.controller.UserController;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.security.RoleAuthoritiesResolver;
+import com.usersapi.usersapi.service.ExportService;
+import com.usersapi.usersapi.service.UserProvisioningService;
+import com.usersapi.usersapi.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = UserController.class, properties = "supabase.jwt.secret=" + SecurityConfigTest.SECRET)
+@Import({SecurityConfig.class, SecurityConfigTest.Metrics.class})
+class SecurityConfigTest {
+
+    static final String SECRET = "security-test-secret-security-test-secret-0123";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockitoBean
+    private UserService userService;
+    @MockitoBean
+    private UserProvisioningService userProvisioningService;
+    @MockitoBean
+    private ExportService exportService;
+    @MockitoBean
+    private RoleAuthoritiesResolver roleAuthoritiesResolver;
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Solo los roles de los claims: el del token decide
+        when(roleAuthoritiesResolver.resolve(any(), any()))
+                .thenAnswer(inv -> new ArrayList<>((Collection<?>) inv.getArgument(1)));
+    }
+
+    @Test
+    void a_non_admin_cannot_create_users_or_change_their_status() throws Exception {
+        String agent = token("agent");
+
+        mockMvc.perform(post("/users")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + agent)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"idUser\":7,\"role\":{\"idRole\":1}}"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/users/7/status/1").header(HttpHeaders.AUTHORIZATION, "Bearer " + agent))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void an_admin_can_create_users() throws Exception {
+        when(userService.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        mockMvc.perform(post("/users")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token("admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Ana\"}"))
+                .andExpect(status().isOk());
+    }
+
+    private static String token(String role) throws Exception {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(UUID.randomUUID().toString())
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plusSeconds(300)))
+                .claim("app_metadata", Map.of("role", role))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(SECRET));
+        return jwt.serialize();
+    }
+}
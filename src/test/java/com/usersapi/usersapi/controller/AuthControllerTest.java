@@ -0,0 +1,41 @@
+package com.usersapi.usersapi.controller;
+
+import com.usersapi.usersapi.service.AuthService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuthControllerTest {
+
+    private final AuthService authService = mock(AuthService.class);
+    private final AuthController controller = new AuthController(authService);
+
+    @Test
+    void me_answers_401_only_for_an_invalid_token() {
+        assertThat(meStatus(new BadJwtException("expired"))).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    void me_answers_503_when_the_jdbc_scheduler_or_the_database_is_unavailable() {
+        assertThat(meStatus(new RejectedExecutionException("queue full"))).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(meStatus(new DataAccessResourceFailureException("no connection"))).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void me_does_not_blame_the_token_for_unexpected_errors() {
+        assertThat(meStatus(new IllegalStateException("bug"))).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private HttpStatus meStatus(Throwable error) {
+        when(authService.getUser("token")).thenReturn(Mono.error(error));
+        return HttpStatus.valueOf(controller.me("Bearer token").block().getStatusCode().value());
+    }
+}
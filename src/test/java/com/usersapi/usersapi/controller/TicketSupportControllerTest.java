@@ -1,51 +1,178 @@
 package com.usersapi.usersapi.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersapi.usersapi.dto.PageResponse;
 import com.usersapi.usersapi.dto.TicketAnswerRequest;
-import com.usersapi.usersapi.model.TicketStatus;
-import com.usersapi.usersapi.model.TicketSupport;
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.exception.TicketStatusConflictException;
+import com.usersapi.usersapi.exception.TicketVersionConflictException;
+import com.usersapi.usersapi.service.ExportService;
+import com.usersapi.usersapi.service.TicketBulkService;
+import com.usersapi.usersapi.service.TicketEventHub;
+import com.usersapi.usersapi.service.TicketIntakeService;
+import com.usersapi.usersapi.service.TicketStatsService;
 import com.usersapi.usersapi.service.TicketSupportService;
+import com.usersapi.usersapi.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
 
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class TicketSupportControllerTest {
 
     private MockMvc mockMvc;
     private TicketSupportService service;
+    private TicketIntakeService intakeService;
+    private TicketEventHub eventHub;
 
     private final ObjectMapper mapper = new ObjectMapper();
 
     @BeforeEach
     void setup() {
         service = Mockito.mock(TicketSupportService.class);
-        TicketSupportController controller = new TicketSupportController(service);
-        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        intakeService = Mockito.mock(TicketIntakeService.class);
+        eventHub = Mockito.mock(TicketEventHub.class);
+        TicketSupportController controller = new TicketSupportController(service, Mockito.mock(TicketBulkService.class),
+                eventHub, Mockito.mock(TicketStatsService.class), intakeService,
+                Mockito.mock(UserService.class), Mockito.mock(ExportService.class));
+        // Mismo límite que el async por defecto del contenedor (~30s)
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).setAsyncRequestTimeout(30_000).build();
+    }
+
+    @Test
+    void the_event_stream_is_not_cut_by_the_default_async_timeout() throws Exception {
+        Mockito.when(eventHub.subscribe(any(), any(), any())).thenReturn(Flux.never());
+
+        MvcResult result = mockMvc.perform(get("/tickets/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isLessThanOrEqualTo(0);
+    }
+
+    @Test
+    void create_with_prefer_respond_async_returns_202_with_reference() throws Exception {
+        UUID reference = UUID.randomUUID();
+        Mockito.when(intakeService.accept(Mockito.any())).thenReturn(Optional.of(reference));
+
+        mockMvc.perform(post("/tickets")
+                        .header("Prefer", "respond-async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"idplanifikauser\":5,\"title\":\"t\",\"description\":\"d\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "http://localhost/tickets/intake/" + reference))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+        Mockito.verifyNoInteractions(service);
     }
 
     @Test
     void updateStatus_returns_ok_when_service_succeeds() throws Exception {
-        TicketSupport t = new TicketSupport();
-        TicketStatus s = new TicketStatus(); s.setIdTicketStatus(2); s.setName("IN_PROGRESS");
-        t.setStatus(s);
-        Mockito.when(service.updateStatus(7, 2)).thenReturn(t);
+        TicketResponse t = new TicketResponse(7, 5, 2, "IN_PROGRESS", "t", "d", null, null, null, 0L);
+        Mockito.when(service.updateStatus(7, 2, null, null)).thenReturn(t);
 
         mockMvc.perform(patch("/tickets/7/status/2"))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void updateStatus_returns_409_when_expected_status_does_not_match() throws Exception {
+        Mockito.when(service.updateStatus(7, 3, 1, null)).thenThrow(new TicketStatusConflictException(7, 1, 2));
+
+        mockMvc.perform(patch("/tickets/7/status/3").param("expectedStatus", "1"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void list_returns_next_cursor_when_more_tickets_exist() throws Exception {
+        java.util.List<TicketResponse> rows = new java.util.ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            rows.add(new TicketResponse(id, 5, 2, "IN_PROGRESS", "t" + id, "d", null, null, null, 0L));
+        }
+        Mockito.when(service.findPage(2, null, null, null, 3)).thenReturn(rows);
+
+        mockMvc.perform(get("/tickets").param("idticketstatus", "2").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").value(TicketSupportController.encodeCursor(2)));
+    }
+
+    @Test
+    void list_etag_changes_when_a_joined_name_is_renamed() {
+        TicketResponse before = new TicketResponse(1, 5, 2, "IN_PROGRESS", "t", "d", null, 4, "Ana", 0L);
+        TicketResponse renamedStatus = new TicketResponse(1, 5, 2, "EN_CURSO", "t", "d", null, 4, "Ana", 0L);
+        TicketResponse renamedUser = new TicketResponse(1, 5, 2, "IN_PROGRESS", "t", "d", null, 4, "Ana María", 0L);
+
+        String etag = TicketSupportController.listEtag(java.util.List.of(before), null);
+
+        assertThat(TicketSupportController.listEtag(java.util.List.of(renamedStatus), null)).isNotEqualTo(etag);
+        assertThat(TicketSupportController.listEtag(java.util.List.of(renamedUser), null)).isNotEqualTo(etag);
+        assertThat(TicketSupportController.listEtag(java.util.List.of(before), null)).isEqualTo(etag);
+    }
+
+    @Test
+    void list_returns_400_on_malformed_cursor() throws Exception {
+        mockMvc.perform(get("/tickets").param("cursor", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void search_caps_page_size_and_rejects_blank_queries() throws Exception {
+        Mockito.when(service.search("impresora", null, 4, 1, TicketSupportController.MAX_PAGE_SIZE))
+                .thenReturn(new PageResponse<>(java.util.List.of(), 1, TicketSupportController.MAX_PAGE_SIZE, 0));
+
+        mockMvc.perform(get("/tickets/search").param("q", "impresora").param("iddrimsoftuser", "4")
+                        .param("page", "1").param("size", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(TicketSupportController.MAX_PAGE_SIZE));
+        mockMvc.perform(get("/tickets/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getById_returns_304_when_etag_matches_current_version() throws Exception {
+        TicketResponse t = new TicketResponse(8, 5, 1, "PENDING", "t", "d", null, null, null, 3L);
+        Mockito.when(service.findResponseById(8)).thenReturn(java.util.Optional.of(t));
+
+        mockMvc.perform(get("/tickets/8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+        mockMvc.perform(get("/tickets/8").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void patch_with_stale_if_match_returns_412() throws Exception {
+        Mockito.when(service.updateStatus(8, 2, null, 2L)).thenThrow(new TicketVersionConflictException(8, 2, 3));
+
+        mockMvc.perform(patch("/tickets/8/status/2").header("If-Match", "\"2\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/tickets/8/status/2").header("If-Match", "W/\"abc\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     void getById_returns_404_when_not_found() throws Exception {
-        Mockito.when(service.findById(999)).thenReturn(java.util.Optional.empty());
+        Mockito.when(service.findResponseById(999)).thenReturn(java.util.Optional.empty());
 
         mockMvc.perform(get("/tickets/999"))
                 .andExpect(status().isNotFound());
@@ -53,10 +180,8 @@ class TicketSupportControllerTest {
 
     @Test
     void addAnswer_returns_ok_when_valid() throws Exception {
-        TicketSupport t = new TicketSupport();
-        TicketStatus s = new TicketStatus(); s.setIdTicketStatus(3); s.setName("ANSWERED");
-        t.setStatus(s);
-        Mockito.when(service.updateAnswer(eq(10), eq("Respuesta"), any())).thenReturn(t);
+        TicketResponse t = new TicketResponse(10, 5, 3, "ANSWERED", "t", "d", "Respuesta", null, null, 0L);
+        Mockito.when(service.updateAnswer(eq(10), eq("Respuesta"), any(), any(), any())).thenReturn(t);
 
         TicketAnswerRequest req = new TicketAnswerRequest();
         req.setAnswer("Respuesta");
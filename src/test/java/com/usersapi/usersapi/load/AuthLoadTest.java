@@ -0,0 +1,226 @@
+package com.usersapi.usersapi.load;
+
+import com.usersapi.usersapi.model.Role;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.repository.RoleRepository;
+import com.usersapi.usersapi.repository.TicketStatusRepository;
+import com.usersapi.usersapi.repository.TicketSupportRepository;
+import com.usersapi.usersapi.repository.UserRepository;
+import com.usersapi.usersapi.repository.UserStatusRepository;
+import com.usersapi.usersapi.support.SupabaseAuthStub;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba de carga de /auth/login, /auth/me y /auth/update-profile contra {@link SupabaseAuthStub}.
+ * Levanta la aplicación completa (seguridad incluida) sin base de datos: los repositorios son mocks.
+ *
+ * mvn test -Pload-test -Dload.concurrency=1,16,64 -Dload.requests=2000 -Dload.supabase.latency-ms=40
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.autoconfigure.exclude="
+                + "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+        "supabase.anon.key=anon-key",
+        "supabase.service.key=service-key",
+        "supabase.jwt.secret=" + AuthLoadTest.SECRET,
+        "spring.jpa.show-sql=false"
+})
+class AuthLoadTest {
+
+    static final String SECRET = "load-test-secret-load-test-secret-0123456789";
+    private static final int USERS = 100;
+
+    private static final SupabaseAuthStub stub = startStub();
+
+    @MockitoBean
+    private UserRepository userRepository;
+    @MockitoBean
+    private RoleRepository roleRepository;
+    @MockitoBean
+    private UserStatusRepository userStatusRepository;
+    @MockitoBean
+    private TicketStatusRepository ticketStatusRepository;
+    @MockitoBean
+    private TicketSupportRepository ticketSupportRepository;
+    @MockitoBean
+    private JdbcTemplate jdbcTemplate;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(64))
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final List<String> emails = new ArrayList<>();
+    private final List<String> tokens = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void supabase(DynamicPropertyRegistry registry) {
+        registry.add("supabase.url", stub::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role();
+        role.setIdRole(2);
+        role.setName("SUPPORT");
+        when(userRepository.findBySupabaseUserId(any())).thenAnswer(inv -> {
+            UserDrimsoft user = new UserDrimsoft();
+            user.setIdUser(Math.abs(inv.getArgument(0).hashCode()));
+            user.setName("Agent");
+            user.setRole(role);
+            user.setSupabaseUserId(inv.getArgument(0));
+            return Optional.of(user);
+        });
+        when(userRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        for (int i = 0; i < USERS; i++) {
+            String email = "agent" + i + "@drimsoft.com";
+            emails.add(email);
+            tokens.add(stub.issueToken(email, Duration.ofHours(1)));
+        }
+    }
+
+    @Test
+    void auth_endpoints_under_load() throws Exception {
+        int requests = Integer.getInteger("load.requests", 500);
+        int[] levels = Arrays.stream(System.getProperty("load.concurrency", "1,8,32").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim()))
+                .toArray();
+
+        List<Result> results = new ArrayList<>();
+        for (int concurrency : levels) {
+            results.add(run("POST /auth/login", concurrency, requests, i -> post("/auth/login",
+                    "{\"email\":\"" + emails.get(i % USERS) + "\",\"password\":\"secret\"}")));
+            results.add(run("GET /auth/me", concurrency, requests, i -> HttpRequest.newBuilder(uri("/auth/me"))
+                    .header("Authorization", "Bearer " + tokens.get(i % USERS))
+                    .GET()
+                    .build()));
+            results.add(run("PATCH /auth/update-profile", concurrency, requests, i -> HttpRequest.newBuilder(uri("/auth/update-profile"))
+                    .header("Authorization", "Bearer " + tokens.get(i % USERS))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"name\":\"Agent " + i + "\"}"))
+                    .build()));
+        }
+
+        double errorRate = Double.parseDouble(System.getProperty("load.supabase.error-rate", "0"));
+        System.out.printf("%nSupabase stub: latency=%dms jitter=%dms errorRate=%.3f, %d requests per run%n",
+                Long.getLong("load.supabase.latency-ms", 30), Long.getLong("load.supabase.jitter-ms", 20),
+                errorRate, requests);
+        System.out.printf("%-28s %6s %10s %9s %9s %9s %9s %7s%n",
+                "endpoint", "conc", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors");
+        results.forEach(r -> System.out.printf("%-28s %6d %10.1f %9.1f %9.1f %9.1f %9.1f %7d%n",
+                r.endpoint(), r.concurrency(), r.throughput(), r.percentile(50), r.percentile(90),
+                r.percentile(99), r.percentile(100), r.errors()));
+
+        // Sin errores inyectados no se admite ninguno; con error-rate, hasta el triple de lo esperado
+        // (update-profile llama dos veces a Supabase y el resto es margen para el azar)
+        int allowedErrors = (int) Math.ceil(requests * errorRate * 3);
+        assertThat(results).allSatisfy(r -> assertThat(r.errors())
+                .as("errores en %s con concurrencia %d", r.endpoint(), r.concurrency())
+                .isLessThanOrEqualTo(allowedErrors));
+    }
+
+    private Result run(String endpoint, int concurrency, int requests, IntFunction<HttpRequest> request) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+
+        long start = System.nanoTime();
+        for (int w = 0; w < concurrency; w++) {
+            workers.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request.apply(i), HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - begin;
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(endpoint, concurrency, requests, latencies, elapsed, errors.get());
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + port + "/api/v1" + path);
+    }
+
+    private static SupabaseAuthStub startStub() {
+        try {
+            return new SupabaseAuthStub(SECRET)
+                    .latency(Duration.ofMillis(Long.getLong("load.supabase.latency-ms", 30)),
+                            Duration.ofMillis(Long.getLong("load.supabase.jitter-ms", 20)))
+                    .errorRate(Double.parseDouble(System.getProperty("load.supabase.error-rate", "0")));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Result(String endpoint, int concurrency, int completed, long[] sortedLatencies, long elapsedNanos, int errors) {
+
+        double throughput() {
+            return completed / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        double percentile(double p) {
+            int index = (int) Math.ceil(p / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1_000_000.0;
+        }
+    }
+}
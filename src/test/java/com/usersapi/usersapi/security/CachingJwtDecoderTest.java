@@ -0,0 +1,74 @@
+package com.usersapi.usersapi.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CachingJwtDecoderTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-32b";
+
+    private JwtDecoder nimbus;
+    private CachingJwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        SecretKeySpec key = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        nimbus = spy(NimbusJwtDecoder.withSecretKey(key).build());
+        decoder = new CachingJwtDecoder(nimbus, 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void repeated_token_is_verified_once_and_authorities_are_reused() throws Exception {
+        String token = token(SECRET);
+        CachingAuthoritiesConverter converter =
+                new CachingAuthoritiesConverter(new ClaimAuthoritiesConverter(), 100, new SimpleMeterRegistry());
+
+        Jwt first = decoder.decode(token);
+        Jwt second = decoder.decode(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(converter.convert(second)).isSameAs(converter.convert(first))
+                .extracting(GrantedAuthority::getAuthority)
+                .contains("ROLE_AUTHENTICATED");
+        verify(nimbus, times(1)).decode(token);
+    }
+
+    @Test
+    void invalid_signature_is_rejected_and_not_cached() throws Exception {
+        String forged = token("another-secret-another-secret-another-32");
+
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(JwtException.class);
+        verify(nimbus, times(2)).decode(forged);
+    }
+
+    private String token(String secret) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), new JWTClaimsSet.Builder()
+                .subject("3f1c2c5e-0000-0000-0000-000000000001")
+                .claim("role", "authenticated")
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .build());
+        jwt.sign(new MACSigner(secret));
+        return jwt.serialize();
+    }
+}
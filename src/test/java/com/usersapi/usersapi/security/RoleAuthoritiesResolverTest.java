@@ -0,0 +1,123 @@
+package com.usersapi.usersapi.security;
+
+import com.usersapi.usersapi.model.Role;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.model.UserStatus;
+import com.usersapi.usersapi.repository.UserRepository;
+import com.usersapi.usersapi.service.ReferenceDataService;
+import com.usersapi.usersapi.service.UserIdentityCache;
+import com.usersapi.usersapi.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RoleAuthoritiesResolverTest {
+
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+    private final ReferenceDataService referenceDataService = Mockito.mock(ReferenceDataService.class);
+    private final UserIdentityCache identityCache =
+            new UserIdentityCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+    private final UserService userService = new UserService(userRepository, referenceDataService, identityCache,
+            event -> { });
+    private final RoleAuthoritiesResolver resolver = new RoleAuthoritiesResolver(userService, identityCache,
+            100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Test
+    void role_change_is_reflected_on_the_next_request_without_querying_again() {
+        UUID subject = UUID.randomUUID();
+        UserDrimsoft user = user(7, subject, role(2, "agent"));
+        when(userRepository.findBySupabaseUserId(subject)).thenReturn(Optional.of(user));
+
+        assertThat(resolver.resolve(jwt(subject), List.of())).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_AGENT");
+
+        when(userRepository.findById(7)).thenReturn(Optional.of(user(7, subject, role(2, "agent"))));
+        when(referenceDataService.findRole(1)).thenReturn(Optional.of(role(1, "admin")));
+        when(userRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        userService.updateRole(7, 1);
+
+        assertThat(resolver.resolve(jwt(subject), List.of())).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN");
+        verify(userRepository, times(1)).findBySupabaseUserId(subject);
+    }
+
+    @Test
+    void unknown_subjects_are_looked_up_once() {
+        UUID subject = UUID.randomUUID();
+        when(userRepository.findBySupabaseUserId(subject)).thenReturn(Optional.empty());
+
+        assertThat(resolver.resolve(jwt(subject), List.of())).isEmpty();
+        assertThat(resolver.resolve(jwt(subject), List.of())).isEmpty();
+        verify(userRepository, times(1)).findBySupabaseUserId(subject);
+    }
+
+    @Test
+    void app_metadata_role_claim_wins_without_any_lookup() {
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "HS256").subject(UUID.randomUUID().toString())
+                .claim("app_metadata", Map.of("role", "admin")).build();
+
+        assertThat(resolver.resolve(jwt, new ClaimAuthoritiesConverter().convert(jwt)))
+                .extracting(GrantedAuthority::getAuthority)
+                .contains("ROLE_ADMIN");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void a_demotion_applies_over_the_claim_when_the_user_is_cached() {
+        UUID subject = UUID.randomUUID();
+        identityCache.put(user(7, subject, role(2, "agent")));
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "HS256").subject(subject.toString())
+                .claim("role", "authenticated").claim("app_metadata", Map.of("role", "admin")).build();
+
+        assertThat(resolver.resolve(jwt, new ClaimAuthoritiesConverter().convert(jwt)))
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactlyInAnyOrder("ROLE_AUTHENTICATED", "ROLE_AGENT");
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void a_deleted_user_in_the_identity_cache_loses_the_claim_roles() {
+        UUID subject = UUID.randomUUID();
+        UserDrimsoft user = user(7, subject, role(1, "admin"));
+        UserStatus deleted = new UserStatus();
+        deleted.setIdUserStatus(UserService.STATUS_DELETED);
+        user.setStatus(deleted);
+        identityCache.put(user);
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "HS256").subject(subject.toString())
+                .claim("role", "authenticated").claim("app_metadata", Map.of("role", "admin")).build();
+
+        assertThat(resolver.resolve(jwt, new ClaimAuthoritiesConverter().convert(jwt))).isEmpty();
+        verifyNoInteractions(userRepository);
+    }
+
+    private static Jwt jwt(UUID subject) {
+        return Jwt.withTokenValue("token").header("alg", "HS256").subject(subject.toString()).build();
+    }
+
+    private static Role role(int id, String name) {
+        Role role = new Role();
+        role.setIdRole(id);
+        role.setName(name);
+        return role;
+    }
+
+    private static UserDrimsoft user(int id, UUID subject, Role role) {
+        UserDrimsoft user = new UserDrimsoft();
+        user.setIdUser(id);
+        user.setSupabaseUserId(subject);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,138 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.client.SupabaseAuthClient;
+import com.usersapi.usersapi.client.SupabaseUserLookup;
+import com.usersapi.usersapi.config.SupabaseClientConfig;
+import com.usersapi.usersapi.exception.SupabaseUnavailableException;
+import com.usersapi.usersapi.model.Role;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.repository.UserRepository;
+import com.usersapi.usersapi.support.SupabaseAuthStub;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class AuthServiceTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-32b";
+    private static final String EMAIL = "agent@drimsoft.com";
+
+    private SupabaseAuthStub stub;
+    private ConnectionProvider connectionProvider;
+    private CircuitBreaker circuitBreaker;
+    private AuthService authService;
+    private UUID supabaseId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new SupabaseAuthStub(SECRET);
+        supabaseId = stub.register(EMAIL);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SupabaseClientConfig config = new SupabaseClientConfig();
+        connectionProvider = config.supabaseConnectionProvider(10, 100, Duration.ofSeconds(2), Duration.ofSeconds(30), Duration.ofMinutes(5));
+        WebClient webClient = config.supabaseWebClient(stub.baseUrl(), "anon-key", Duration.ofSeconds(1), Duration.ofSeconds(5),
+                connectionProvider, WebClient.builder());
+        circuitBreaker = config.supabaseCircuitBreaker(50, 10, 5, Duration.ofSeconds(30), registry);
+        Bulkhead bulkhead = config.supabaseBulkhead(50, Duration.ZERO, registry);
+        Duration timeout = Duration.ofSeconds(5);
+        SupabaseAuthClient client = new SupabaseAuthClient(webClient, circuitBreaker, bulkhead,
+                timeout, timeout, timeout, timeout, timeout, "service-key");
+
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        when(userRepository.findBySupabaseUserId(any())).thenReturn(Optional.of(user()));
+        UserService userService = new UserService(userRepository, null,
+                new UserIdentityCache(100, Duration.ofMinutes(5), registry), event -> { });
+
+        SecretKeySpec key = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        authService = new AuthService(true, client,
+                new SupabaseUserLookup(client, Duration.ofSeconds(30), 100, registry),
+                userService, NimbusJwtDecoder.withSecretKey(key).build(), Schedulers.boundedElastic());
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+        connectionProvider.dispose();
+    }
+
+    @Test
+    void signIn_adds_role_information_from_userdrimsoft() {
+        Map<?, ?> response = authService.signIn(EMAIL, "secret").block();
+
+        assertThat(response.get("access_token")).isNotNull();
+        assertThat(response.get("userName")).isEqualTo("Agent");
+        assertThat(((Map<?, ?>) response.get("role")).get("name")).isEqualTo("SUPPORT");
+    }
+
+    @Test
+    void getUser_in_local_mode_answers_from_claims_without_calling_supabase() {
+        String token = stub.issueToken(EMAIL, Duration.ofHours(1));
+
+        Map<?, ?> me = authService.getUser(token).block();
+
+        assertThat(me.get("id")).isEqualTo(supabaseId.toString());
+        assertThat(me.get("email")).isEqualTo(EMAIL);
+        assertThat(me.get("userName")).isEqualTo("Agent");
+        assertThat(stub.calls("GET /auth/v1/user")).isZero();
+    }
+
+    @Test
+    void open_circuit_fails_fast_with_supabase_unavailable() {
+        circuitBreaker.transitionToOpenState();
+
+        assertThatThrownBy(() -> authService.signIn(EMAIL, "secret").block())
+                .isInstanceOf(SupabaseUnavailableException.class);
+        assertThat(stub.calls("POST /auth/v1/token")).isZero();
+    }
+
+    @Test
+    void connector_response_timeout_surfaces_as_supabase_unavailable() {
+        stub.latency(Duration.ofMillis(500), Duration.ZERO);
+        SupabaseClientConfig config = new SupabaseClientConfig();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // responseTimeout de Netty por debajo del plazo de la operación
+        WebClient webClient = config.supabaseWebClient(stub.baseUrl(), "anon-key", Duration.ofSeconds(1),
+                Duration.ofMillis(100), connectionProvider, WebClient.builder());
+        Duration timeout = Duration.ofSeconds(5);
+        SupabaseAuthClient client = new SupabaseAuthClient(webClient,
+                config.supabaseCircuitBreaker(50, 10, 5, Duration.ofSeconds(30), registry),
+                config.supabaseBulkhead(50, Duration.ZERO, registry),
+                timeout, timeout, timeout, timeout, timeout, "service-key");
+
+        assertThatThrownBy(() -> client.signIn(EMAIL, "secret").block())
+                .isInstanceOf(SupabaseUnavailableException.class);
+    }
+
+    private UserDrimsoft user() {
+        Role role = new Role();
+        role.setIdRole(2);
+        role.setName("SUPPORT");
+        UserDrimsoft user = new UserDrimsoft();
+        user.setIdUser(7);
+        user.setName("Agent");
+        user.setRole(role);
+        user.setSupabaseUserId(supabaseId);
+        return user;
+    }
+}
@@ -0,0 +1,132 @@
+package com.usersapi.usersapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersapi.usersapi.repository.ExportJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+class ExportServiceTest {
+
+    private static final UUID SUPABASE_ID = UUID.fromString("6f1c1d8e-0000-4000-8000-000000000001");
+
+    private final ExportJdbcRepository repository = Mockito.mock(ExportJdbcRepository.class);
+    private final ExportService service = new ExportService(repository, new ObjectMapper(),
+            new SimpleMeterRegistry(), 1, 1, Duration.ofSeconds(30));
+
+    @Test
+    void users_are_written_as_one_json_object_per_line() throws Exception {
+        streamUsers(new Object[]{1, "Ana", SUPABASE_ID, 2, "ADMIN", 1, "ACTIVE"},
+                new Object[]{2, "Luis", null, null, null, 1, "ACTIVE"});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service.exportUsers(null, null, false, ExportService.Format.NDJSON, out);
+
+        assertThat(rows).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"iduser\":1,\"name\":\"Ana\",\"supabaseuserid\":\"" + SUPABASE_ID + "\",\"idrole\":2,"
+                        + "\"rolename\":\"ADMIN\",\"iduserstatus\":1,\"statusname\":\"ACTIVE\"}\n"
+                        + "{\"iduser\":2,\"name\":\"Luis\",\"supabaseuserid\":null,\"idrole\":null,"
+                        + "\"rolename\":null,\"iduserstatus\":1,\"statusname\":\"ACTIVE\"}\n");
+    }
+
+    @Test
+    void csv_has_a_header_and_quotes_values_that_need_it() throws Exception {
+        streamUsers(new Object[]{1, "Pérez, Ana", SUPABASE_ID, 2, "ADMIN", 1, "ACTIVE"});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.exportUsers(null, null, false, ExportService.Format.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).lines().toList()).containsExactly(
+                String.join(",", ExportJdbcRepository.USER_COLUMNS),
+                "1,\"Pérez, Ana\"," + SUPABASE_ID + ",2,ADMIN,1,ACTIVE");
+    }
+
+    @Test
+    void empty_csv_still_has_the_header() throws Exception {
+        streamUsers();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(service.exportUsers(null, null, false, ExportService.Format.CSV, out)).isZero();
+        assertThat(out.toString(StandardCharsets.UTF_8).lines().toList())
+                .containsExactly(String.join(",", ExportJdbcRepository.USER_COLUMNS));
+    }
+
+    @Test
+    void an_export_stops_at_the_first_write_after_max_duration() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExportService impatient = new ExportService(repository, new ObjectMapper(), registry, 1, 1,
+                Duration.ofMillis(20));
+        streamUsers(new Object[]{1, "Ana", SUPABASE_ID, 2, "ADMIN", 1, "ACTIVE"},
+                new Object[]{2, "Luis", null, null, null, 1, "ACTIVE"});
+        OutputStream stalled = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        assertThatThrownBy(() -> impatient.exportUsers(null, null, false, ExportService.Format.NDJSON, stalled))
+                .isInstanceOf(SocketTimeoutException.class);
+        assertThat(registry.counter("users.export.deadline-exceeded").count()).isEqualTo(1);
+    }
+
+    @Test
+    void only_max_concurrent_exports_run_at_once() {
+        Optional<ExportService.Permit> first = service.tryAcquire();
+
+        assertThat(first).isPresent();
+        assertThat(service.tryAcquire()).isEmpty();
+        first.get().close();
+        assertThat(service.tryAcquire()).isPresent();
+    }
+
+    @Test
+    void format_comes_from_the_parameter_or_the_accept_header() {
+        assertThat(ExportService.Format.resolve(null, null)).contains(ExportService.Format.NDJSON);
+        assertThat(ExportService.Format.resolve(null, "text/csv")).contains(ExportService.Format.CSV);
+        assertThat(ExportService.Format.resolve("csv", "application/x-ndjson")).contains(ExportService.Format.CSV);
+        assertThat(ExportService.Format.resolve("xml", null)).isEmpty();
+    }
+
+    // Simula el cursor: una llamada al handler por fila, leyendo las columnas por posición
+    private void streamUsers(Object[]... rows) {
+        doAnswer(inv -> {
+            RowCallbackHandler handler = inv.getArgument(3);
+            for (Object[] row : rows) {
+                ResultSet rs = Mockito.mock(ResultSet.class);
+                for (int i = 0; i < row.length; i++) {
+                    when(rs.getObject(i + 1)).thenReturn(row[i]);
+                }
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(repository).streamUsers(isNull(), isNull(), eq(UserService.STATUS_DELETED), any());
+    }
+}
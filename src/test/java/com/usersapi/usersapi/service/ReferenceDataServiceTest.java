@@ -0,0 +1,66 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.model.TicketStatus;
+import com.usersapi.usersapi.repository.RoleRepository;
+import com.usersapi.usersapi.repository.TicketStatusRepository;
+import com.usersapi.usersapi.repository.UserStatusRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataServiceTest {
+
+    @Mock
+    private RoleRepository roleRepository;
+    @Mock
+    private UserStatusRepository userStatusRepository;
+    @Mock
+    private TicketStatusRepository ticketStatusRepository;
+
+    @InjectMocks
+    private ReferenceDataService service;
+
+    @BeforeEach
+    void setUp() {
+        when(roleRepository.findAll()).thenReturn(List.of());
+        when(userStatusRepository.findAll()).thenReturn(List.of());
+        when(ticketStatusRepository.findAll()).thenReturn(List.of(status(2, "IN_PROGRESS"), status(1, "PENDING")));
+    }
+
+    @Test
+    void lookups_are_served_from_a_single_load() {
+        assertThat(service.findTicketStatus(1)).map(TicketStatus::getName).contains("PENDING");
+        assertThat(service.findTicketStatusByName("in_progress")).map(TicketStatus::getIdTicketStatus).contains(2);
+        assertThat(service.findAllTicketStatuses()).extracting(TicketStatus::getIdTicketStatus).containsExactly(1, 2);
+        assertThat(service.findTicketStatus(99)).isEmpty();
+
+        verify(ticketStatusRepository, times(1)).findAll();
+    }
+
+    @Test
+    void refresh_publishes_new_rows() {
+        service.findTicketStatus(1);
+        when(ticketStatusRepository.findAll()).thenReturn(List.of(status(1, "PENDING"), status(4, "CLOSED")));
+
+        service.refresh();
+
+        assertThat(service.findTicketStatus(4)).map(TicketStatus::getName).contains("CLOSED");
+        assertThat(service.findTicketStatus(2)).isEmpty();
+    }
+
+    private TicketStatus status(Integer id, String name) {
+        TicketStatus s = new TicketStatus();
+        s.setIdTicketStatus(id);
+        s.setName(name);
+        return s;
+    }
+}
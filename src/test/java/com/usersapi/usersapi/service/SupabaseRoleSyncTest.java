@@ -0,0 +1,102 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.client.SupabaseAuthClient;
+import com.usersapi.usersapi.dto.RoleSyncSummary;
+import com.usersapi.usersapi.dto.UserSummaryDto;
+import com.usersapi.usersapi.event.UserRoleChangedEvent;
+import com.usersapi.usersapi.exception.SupabaseUnavailableException;
+import com.usersapi.usersapi.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageImpl;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SupabaseRoleSyncTest {
+
+    private final SupabaseAuthClient client = Mockito.mock(SupabaseAuthClient.class);
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SupabaseRoleSync sync = new SupabaseRoleSync(client, userRepository, Schedulers.immediate(),
+            3, Duration.ofMillis(1), 4, 500, registry);
+
+    @Test
+    void role_change_is_pushed_to_app_metadata_retrying_transient_failures() throws Exception {
+        UUID supabaseId = UUID.randomUUID();
+        AtomicInteger attempts = new AtomicInteger();
+        when(client.adminUpdateAppMetadata(supabaseId, Map.of("role", "ADMIN"))).thenReturn(Mono.defer(() ->
+                attempts.incrementAndGet() == 1
+                        ? Mono.error(new SupabaseUnavailableException("Supabase no respondió a tiempo", null))
+                        : Mono.just(Map.<String, Object>of())));
+
+        sync.onRoleChanged(new UserRoleChangedEvent(7, supabaseId, "ADMIN"));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (registry.counter("users.role-sync", "outcome", "synced").count() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(attempts).hasValue(2);
+        assertThat(registry.counter("users.role-sync", "outcome", "synced").count()).isEqualTo(1);
+    }
+
+    @Test
+    void a_user_without_role_is_pushed_as_a_null_role() {
+        UUID supabaseId = UUID.randomUUID();
+        when(client.adminUpdateAppMetadata(eq(supabaseId), any())).thenReturn(Mono.just(Map.of()));
+
+        sync.onRoleChanged(new UserRoleChangedEvent(7, supabaseId, null));
+
+        verify(client, timeout(5_000)).adminUpdateAppMetadata(supabaseId, Collections.singletonMap("role", null));
+    }
+
+    @Test
+    void backfill_waits_for_a_pending_change_instead_of_pushing_its_own_role() {
+        UUID supabaseId = UUID.randomUUID();
+        Sinks.One<Map<String, Object>> slow = Sinks.one();
+        when(client.adminUpdateAppMetadata(supabaseId, Map.of("role", "AGENT"))).thenReturn(slow.asMono());
+        when(userRepository.findSummaries(isNull(), isNull(), isNull(), any())).thenReturn(new PageImpl<>(List.of(
+                new UserSummaryDto(1, "A", supabaseId, 1, "ADMIN", 1, "ACTIVE"))));
+
+        sync.onRoleChanged(new UserRoleChangedEvent(1, supabaseId, "AGENT"));
+        Mono<RoleSyncSummary> backfill = sync.backfill().cache();
+        backfill.subscribe();
+        slow.tryEmitValue(Map.of());
+
+        assertThat(backfill.block(Duration.ofSeconds(5)).getSynced()).isEqualTo(1);
+        verify(client, times(1)).adminUpdateAppMetadata(eq(supabaseId), any());
+    }
+
+    @Test
+    void backfill_pushes_every_user_with_a_supabase_id_and_role() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        when(userRepository.findSummaries(isNull(), isNull(), isNull(), any())).thenReturn(new PageImpl<>(List.of(
+                new UserSummaryDto(1, "A", a, 1, "ADMIN", 1, "ACTIVE"),
+                new UserSummaryDto(2, "B", b, 2, "AGENT", 1, "ACTIVE"),
+                new UserSummaryDto(3, "Sin cuenta", null, 2, "AGENT", 1, "ACTIVE"))));
+        when(client.adminUpdateAppMetadata(eq(a), any())).thenReturn(Mono.just(Map.of()));
+        when(client.adminUpdateAppMetadata(eq(b), any())).thenReturn(Mono.error(new IllegalStateException("400")));
+
+        RoleSyncSummary summary = sync.backfill().block();
+
+        assertThat(summary.getSynced()).isEqualTo(1);
+        assertThat(summary.getFailed()).isEqualTo(1);
+        // Un 4xx no es transitorio: no se reintenta
+        verify(client, times(1)).adminUpdateAppMetadata(eq(b), any());
+    }
+}
@@ -0,0 +1,130 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.dto.TicketBulkRequest;
+import com.usersapi.usersapi.dto.TicketBulkResult;
+import com.usersapi.usersapi.dto.TicketBulkResult.Outcome;
+import com.usersapi.usersapi.dto.TicketCreateRequest;
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.exception.ResourceNotFoundException;
+import com.usersapi.usersapi.model.TicketStatus;
+import com.usersapi.usersapi.model.TicketSupport;
+import com.usersapi.usersapi.repository.TicketBatchRepository;
+import com.usersapi.usersapi.repository.TicketBatchRepository.BulkUpdate;
+import com.usersapi.usersapi.repository.TicketJdbcRepository;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.CurrentState;
+import com.usersapi.usersapi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class TicketBulkServiceTest {
+
+    private TicketBatchRepository repository;
+    private TicketStatusService statusService;
+    private UserRepository userRepository;
+    private TicketJdbcRepository jdbcRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private TicketBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = Mockito.mock(TicketBatchRepository.class);
+        statusService = Mockito.mock(TicketStatusService.class);
+        userRepository = Mockito.mock(UserRepository.class);
+        jdbcRepository = Mockito.mock(TicketJdbcRepository.class);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        service = new TicketBulkService(repository, statusService, userRepository, jdbcRepository, eventPublisher, 3);
+
+        TicketStatus pending = new TicketStatus();
+        pending.setIdTicketStatus(1);
+        TicketStatus closed = new TicketStatus();
+        closed.setIdTicketStatus(4);
+        when(statusService.findById(1)).thenReturn(Optional.of(pending));
+        when(statusService.findById(4)).thenReturn(Optional.of(closed));
+    }
+
+    @Test
+    void status_change_reports_one_outcome_per_distinct_id() {
+        when(repository.updateStatus(List.of(1, 2, 3), 4, 2)).thenReturn(new BulkUpdate(List.of(1),
+                Map.of(1, new CurrentState(2, null, 0), 2, new CurrentState(3, 7, 0))));
+        when(jdbcRepository.findAllByIds(List.of(1)))
+                .thenReturn(List.of(new TicketResponse(1, 5, 4, "CLOSED", "t", "d", null, null, null, 0L)));
+
+        TicketBulkRequest request = new TicketBulkRequest();
+        request.setOperation(TicketBulkRequest.Operation.STATUS);
+        request.setIds(List.of(1, 2, 3, 1));
+        request.setIdticketstatus(4);
+        request.setExpectedStatus(2);
+
+        List<TicketBulkResult> results = service.apply(request);
+
+        assertThat(results).extracting(TicketBulkResult::getOutcome)
+                .containsExactly(Outcome.UPDATED, Outcome.CONFLICT, Outcome.NOT_FOUND);
+        assertThat(results.get(1).getIdticketstatus()).isEqualTo(3);
+        ArgumentCaptor<TicketChangedEvent> event = ArgumentCaptor.forClass(TicketChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().type()).isEqualTo(TicketChangedEvent.Type.STATUS_CHANGED);
+        assertThat(event.getValue().previousStatusId()).isEqualTo(2);
+    }
+
+    @Test
+    void assign_checks_the_user_once_before_writing() {
+        when(userRepository.existsById(9)).thenReturn(false);
+
+        TicketBulkRequest request = new TicketBulkRequest();
+        request.setOperation(TicketBulkRequest.Operation.ASSIGN);
+        request.setIds(List.of(1, 2));
+        request.setIddrimsoftuser(9);
+
+        assertThatThrownBy(() -> service.apply(request)).isInstanceOf(ResourceNotFoundException.class);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void create_inserts_valid_rows_in_one_batch_and_marks_invalid_ones() {
+        when(userRepository.findAllById(anyList())).thenReturn(List.of());
+        when(repository.insertAll(anyList())).thenAnswer(inv -> {
+            List<TicketSupport> tickets = inv.getArgument(0);
+            for (int i = 0; i < tickets.size(); i++) {
+                tickets.get(i).setIdTickets(100 + i);
+            }
+            return tickets;
+        });
+
+        TicketCreateRequest valid = new TicketCreateRequest();
+        valid.setIdplanifikauser(7);
+        valid.setTitle("Titulo");
+        valid.setDescription("Desc");
+        valid.setIddrimsoftuser(55);
+
+        List<TicketBulkResult> results = service.create(List.of(valid, new TicketCreateRequest(), valid));
+
+        assertThat(results).extracting(TicketBulkResult::getOutcome)
+                .containsExactly(Outcome.CREATED, Outcome.INVALID, Outcome.CREATED);
+        assertThat(results.get(2).getIdtickets()).isEqualTo(101);
+        assertThat(results.get(0).getIdticketstatus()).isEqualTo(1);
+        verify(repository, times(1)).insertAll(anyList());
+    }
+
+    @Test
+    void rejects_requests_over_the_limit() {
+        TicketBulkRequest request = new TicketBulkRequest();
+        request.setOperation(TicketBulkRequest.Operation.STATUS);
+        request.setIds(List.of(1, 2, 3, 4));
+        request.setIdticketstatus(4);
+
+        assertThatThrownBy(() -> service.apply(request)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,81 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.event.TicketChangedEvent.Type;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TicketEventHubTest {
+
+    private final TicketEventHub hub = new TicketEventHub(3, Duration.ofHours(1));
+
+    @Test
+    void replays_missed_events_after_last_event_id_and_applies_filters() {
+        hub.onTicketChanged(event(1, 10, 100));
+        hub.onTicketChanged(event(2, 20, 100));
+        hub.onTicketChanged(event(3, 10, 200));
+
+        List<ServerSentEvent<TicketChangedEvent>> received = new CopyOnWriteArrayList<>();
+        Disposable subscription = hub.subscribe(hub.eventId(1), 10, null).subscribe(received::add);
+        hub.onTicketChanged(event(4, 10, 100));
+        subscription.dispose();
+
+        assertThat(received).extracting(ServerSentEvent::id).containsExactly(hub.eventId(3), hub.eventId(4));
+        assertThat(received.get(0).event()).isEqualTo("ASSIGNED");
+        assertThat(received.get(0).data().ticket().getIdtickets()).isEqualTo(3);
+    }
+
+    @Test
+    void new_subscribers_only_get_live_events() {
+        hub.onTicketChanged(event(1, 10, 100));
+
+        List<ServerSentEvent<TicketChangedEvent>> received = new CopyOnWriteArrayList<>();
+        Disposable subscription = hub.subscribe(null, null, null).subscribe(received::add);
+        hub.onTicketChanged(event(2, 10, 100));
+        subscription.dispose();
+
+        assertThat(received).extracting(ServerSentEvent::id).containsExactly(hub.eventId(2));
+    }
+
+    @Test
+    void asks_for_resync_when_last_event_id_fell_out_of_the_buffer() {
+        for (int i = 1; i <= 6; i++) {
+            hub.onTicketChanged(event(i, 10, 100));
+        }
+
+        List<ServerSentEvent<TicketChangedEvent>> received = hub.subscribe(hub.eventId(1), null, null)
+                .take(4).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(received).extracting(ServerSentEvent::event)
+                .containsExactly("resync", "ASSIGNED", "ASSIGNED", "ASSIGNED");
+        assertThat(received.get(3).id()).isEqualTo(hub.eventId(6));
+    }
+
+    @Test
+    void ids_from_a_previous_process_get_resync_and_then_live_events() {
+        hub.onTicketChanged(event(1, 10, 100));
+
+        // Antes de un reinicio la secuencia iba por 5000; ids sin época (formato anterior) igual
+        for (String lastEventId : List.of("kx0abc-5000", "5000", hub.eventId(5000))) {
+            List<ServerSentEvent<TicketChangedEvent>> received = new CopyOnWriteArrayList<>();
+            Disposable subscription = hub.subscribe(lastEventId, null, null).subscribe(received::add);
+            hub.onTicketChanged(event(2, 10, 100));
+            subscription.dispose();
+
+            assertThat(received).extracting(ServerSentEvent::event).containsExactly("resync", "ASSIGNED");
+        }
+    }
+
+    private static TicketChangedEvent event(int id, Integer userId, Integer planifikaUserId) {
+        return new TicketChangedEvent(Type.ASSIGNED,
+                new TicketResponse(id, planifikaUserId, 2, "IN_PROGRESS", "t", "d", null, userId, null, 0L), 1, null);
+    }
+}
@@ -0,0 +1,142 @@
+package com.usersapi.usersapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usersapi.usersapi.dto.TicketCreateRequest;
+import com.usersapi.usersapi.dto.TicketIntakeResponse;
+import com.usersapi.usersapi.model.TicketSupport;
+import com.usersapi.usersapi.repository.TicketBatchRepository;
+import com.usersapi.usersapi.repository.TicketJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+class TicketIntakeServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final TicketBulkService bulkService = Mockito.mock(TicketBulkService.class);
+    private final TicketBatchRepository batchRepository = Mockito.mock(TicketBatchRepository.class);
+    private final TicketJdbcRepository jdbcRepository = Mockito.mock(TicketJdbcRepository.class);
+
+    private TicketIntakeService service(int capacity) {
+        return new TicketIntakeService(bulkService, batchRepository, jdbcRepository,
+                Mockito.mock(ApplicationEventPublisher.class), new ObjectMapper(), new SimpleMeterRegistry(),
+                dir.resolve("intake.journal"), capacity, 500, Duration.ofMillis(10), Duration.ofMillis(10));
+    }
+
+    @Test
+    void accepted_tickets_survive_a_restart_and_the_journal_empties_once_drained() throws Exception {
+        TicketIntakeService first = service(10);
+        UUID a = first.accept(request("A")).orElseThrow();
+        UUID b = first.accept(request("B")).orElseThrow();
+        first.stop();
+
+        // Nueva instancia sobre el mismo journal: las dos altas siguen pendientes
+        TicketIntakeService restarted = service(10);
+        restarted.recover();
+        assertThat(restarted.backlog()).isEqualTo(2);
+        assertThat(restarted.status(a)).map(TicketIntakeResponse::getStatus).contains(TicketIntakeResponse.Status.QUEUED);
+
+        when(bulkService.toTickets(anyList())).thenAnswer(inv -> {
+            List<TicketSupport> tickets = new ArrayList<>();
+            for (Object ignored : (List<?>) inv.getArgument(0)) {
+                tickets.add(new TicketSupport());
+            }
+            return tickets;
+        });
+        when(batchRepository.insertIntake(anyList(), anyList())).thenReturn(Map.of(a, 10, b, 11));
+        when(batchRepository.findIdByIntakeReference(a)).thenReturn(Optional.of(10));
+        when(jdbcRepository.findAllByIds(anyList())).thenReturn(List.of());
+
+        restarted.drain(List.of(new TicketIntakeService.Entry(a, 0, request("A")),
+                new TicketIntakeService.Entry(b, 0, request("B"))));
+
+        assertThat(restarted.backlog()).isZero();
+        assertThat(restarted.status(a)).map(TicketIntakeResponse::getIdtickets).contains(10);
+        assertThat(Files.size(dir.resolve("intake.journal"))).isZero();
+        restarted.stop();
+    }
+
+    @Test
+    void a_row_that_keeps_failing_is_dead_lettered_and_the_rest_of_the_batch_is_inserted() throws Exception {
+        TicketIntakeService service = service(10);
+        UUID good = service.accept(request("ok")).orElseThrow();
+        UUID bad = service.accept(request("bad")).orElseThrow();
+        when(bulkService.toTickets(anyList())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).stream()
+                .map(ignored -> new TicketSupport()).toList());
+        when(batchRepository.insertIntake(anyList(), anyList())).thenAnswer(inv -> {
+            List<UUID> references = inv.getArgument(1);
+            if (references.contains(bad)) {
+                throw new DataIntegrityViolationException("check constraint");
+            }
+            return Map.of(good, 10);
+        });
+        when(jdbcRepository.findAllByIds(anyList())).thenReturn(List.of());
+
+        service.drain(List.of(new TicketIntakeService.Entry(good, 0, request("ok")),
+                new TicketIntakeService.Entry(bad, 0, request("bad"))));
+
+        assertThat(service.backlog()).isZero();
+        assertThat(service.status(bad)).map(TicketIntakeResponse::getStatus).contains(TicketIntakeResponse.Status.FAILED);
+        assertThat(Files.readString(dir.resolve("intake.journal.dead-letter"))).contains(bad.toString(), "check constraint");
+        service.stop();
+
+        // Tras reiniciar no se reencola y sigue constando como fallida
+        TicketIntakeService restarted = service(10);
+        restarted.recover();
+        assertThat(restarted.backlog()).isZero();
+        assertThat(restarted.status(bad)).map(TicketIntakeResponse::getStatus).contains(TicketIntakeResponse.Status.FAILED);
+        restarted.stop();
+    }
+
+    @Test
+    void database_outages_are_retried_instead_of_dead_lettered() throws Exception {
+        TicketIntakeService service = service(10);
+        UUID reference = service.accept(request("A")).orElseThrow();
+        when(bulkService.toTickets(anyList())).thenReturn(List.of(new TicketSupport()));
+        when(batchRepository.insertIntake(anyList(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        assertThatThrownBy(() -> service.drain(List.of(new TicketIntakeService.Entry(reference, 0, request("A")))))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(service.status(reference)).map(TicketIntakeResponse::getStatus).contains(TicketIntakeResponse.Status.QUEUED);
+        assertThat(dir.resolve("intake.journal.dead-letter")).doesNotExist();
+        service.stop();
+    }
+
+    @Test
+    void rejects_when_the_queue_is_full() throws Exception {
+        TicketIntakeService service = service(1);
+
+        assertThat(service.accept(request("A"))).isPresent();
+        assertThat(service.accept(request("B"))).isEmpty();
+        service.stop();
+    }
+
+    private static TicketCreateRequest request(String title) {
+        TicketCreateRequest request = new TicketCreateRequest();
+        request.setIdplanifikauser(5);
+        request.setTitle(title);
+        request.setDescription("d");
+        return request;
+    }
+}
@@ -0,0 +1,105 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.dto.TicketStatsResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.event.TicketChangedEvent.Type;
+import com.usersapi.usersapi.repository.TicketJdbcRepository;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.CountSnapshot;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.TicketCount;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.TicketState;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+class TicketStatsServiceTest {
+
+    private final TicketJdbcRepository repository = Mockito.mock(TicketJdbcRepository.class);
+    private final TicketStatsService service = new TicketStatsService(repository);
+
+    @Test
+    void events_during_reconcile_are_reapplied_only_if_newer_than_the_snapshot() {
+        when(repository.countSnapshot(any())).thenAnswer(inv -> {
+            // Mientras corre la consulta: el ticket 1 (ya en la instantánea, versión 3) y el 2 (posterior)
+            service.onTicketChanged(new TicketChangedEvent(Type.ASSIGNED, ticket(1, 2, 7, 100, 3L), 1, null));
+            service.onTicketChanged(new TicketChangedEvent(Type.ASSIGNED, ticket(2, 2, 7, 100, 5L), 1, null));
+            Supplier<Collection<Integer>> touched = inv.getArgument(0);
+            assertThat(touched.get()).containsExactlyInAnyOrder(1, 2);
+            return new CountSnapshot(List.of(new TicketCount(1, null, 100, 1), new TicketCount(2, 7, 100, 1)),
+                    Map.of(1, new TicketState(3, 2, 7, 100), 2, new TicketState(4, 1, null, 100)));
+        });
+
+        service.reconcile();
+
+        assertThat(service.stats().getByStatus()).isEqualTo(Map.of(2, 2L));
+        assertThat(service.stats().getByDrimsoftUser()).isEqualTo(Map.of(7, Map.of(2, 2L)));
+    }
+
+    @Test
+    void a_transition_interleaved_with_the_reconcile_counts_once_per_ticket() {
+        when(repository.countSnapshot(any())).thenAnswer(inv -> {
+            // El ticket 1 pasó a la versión 4 antes del recuento, pero su evento llega durante la consulta
+            service.onTicketChanged(new TicketChangedEvent(Type.ASSIGNED, ticket(1, 2, 7, 100, 4L), 1, null));
+            Supplier<Collection<Integer>> touched = inv.getArgument(0);
+            assertThat(touched.get()).containsExactly(1);
+            // Confirmadas después del recuento y publicadas antes de comparar: el 2 ya no se lee de la instantánea
+            service.onTicketChanged(new TicketChangedEvent(Type.STATUS_CHANGED, ticket(1, 3, 7, 100, 5L), 2, 7));
+            service.onTicketChanged(new TicketChangedEvent(Type.STATUS_CHANGED, ticket(2, 3, null, 100, 1L), 1, null));
+            return new CountSnapshot(List.of(new TicketCount(2, 7, 100, 1), new TicketCount(1, null, 100, 1)),
+                    Map.of(1, new TicketState(4, 2, 7, 100)));
+        });
+
+        service.reconcile();
+
+        TicketStatsResponse stats = service.stats();
+        assertThat(stats.getByStatus()).isEqualTo(Map.of(3, 2L));
+        assertThat(stats.getByDrimsoftUser()).isEqualTo(Map.of(7, Map.of(3, 1L)));
+        assertThat(stats.getByPlanifikaUser()).isEqualTo(Map.of(100, Map.of(3, 2L)));
+    }
+
+    @Test
+    void events_move_counts_between_buckets_without_querying() {
+        when(repository.countSnapshot(any())).thenReturn(new CountSnapshot(List.of(
+                new TicketCount(1, null, 100, 3),
+                new TicketCount(2, 7, 100, 1)), Map.of()));
+        service.reconcile();
+
+        // Ticket pendiente asignado al agente 7 y luego uno nuevo del usuario 200
+        service.onTicketChanged(new TicketChangedEvent(Type.ASSIGNED, ticket(1, 2, 7, 100), 1, null));
+        service.onTicketChanged(TicketChangedEvent.created(ticket(2, 1, null, 200)));
+
+        TicketStatsResponse stats = service.stats();
+        assertThat(stats.getByStatus()).isEqualTo(Map.of(1, 3L, 2, 2L));
+        assertThat(stats.getByDrimsoftUser()).isEqualTo(Map.of(7, Map.of(2, 2L)));
+        assertThat(stats.getByPlanifikaUser()).isEqualTo(Map.of(100, Map.of(1, 2L, 2, 2L), 200, Map.of(1, 1L)));
+        Mockito.verify(repository, Mockito.times(1)).countSnapshot(any());
+    }
+
+    @Test
+    void reconcile_replaces_drifted_counters() {
+        when(repository.countSnapshot(any())).thenReturn(
+                new CountSnapshot(List.of(new TicketCount(1, null, 100, 1)), Map.of()));
+        service.onTicketChanged(TicketChangedEvent.created(ticket(1, 3, null, 100)));
+
+        service.reconcile();
+
+        assertThat(service.stats().getByStatus()).isEqualTo(Map.of(1, 1L));
+        assertThat(service.stats().getReconciledAt()).isNotNull();
+    }
+
+    private static TicketResponse ticket(int id, Integer statusId, Integer userId, Integer planifikaUserId) {
+        return ticket(id, statusId, userId, planifikaUserId, 0L);
+    }
+
+    private static TicketResponse ticket(int id, Integer statusId, Integer userId, Integer planifikaUserId, Long version) {
+        return new TicketResponse(id, planifikaUserId, statusId, null, "t", "d", null, userId, null, version);
+    }
+}
@@ -1,8 +1,14 @@
 package com.usersapi.usersapi.service;
 
+import com.usersapi.usersapi.dto.TicketResponse;
+import com.usersapi.usersapi.event.TicketChangedEvent;
+import com.usersapi.usersapi.exception.ResourceNotFoundException;
+import com.usersapi.usersapi.exception.TicketStatusConflictException;
+import com.usersapi.usersapi.exception.TicketVersionConflictException;
 import com.usersapi.usersapi.model.TicketStatus;
 import com.usersapi.usersapi.model.TicketSupport;
-import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.repository.TicketJdbcRepository;
+import com.usersapi.usersapi.repository.TicketJdbcRepository.Guard;
 import com.usersapi.usersapi.repository.TicketSupportRepository;
 import com.usersapi.usersapi.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,10 +19,12 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +36,10 @@ class TicketSupportServiceTest {
     private TicketStatusService ticketStatusService;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private TicketJdbcRepository ticketJdbcRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private TicketSupportService service;
@@ -70,65 +82,130 @@ class TicketSupportServiceTest {
 
     @Test
     void assignUser_sets_user_and_IN_PROGRESS() {
-        TicketSupport existing = new TicketSupport();
-        existing.setIdTickets(10);
-        when(ticketSupportRepository.findById(10)).thenReturn(Optional.of(existing));
-
-        UserDrimsoft user = new UserDrimsoft();
-        user.setIdUser(5);
-        user.setName("Agent");
-        when(userRepository.findById(5)).thenReturn(Optional.of(user));
         when(ticketStatusService.findById(2)).thenReturn(Optional.of(statusInProgress));
-        when(ticketSupportRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(ticketJdbcRepository.assignUser(10, 5, 2, Guard.NONE))
+                .thenReturn(Optional.of(transition(response(10, 2, "IN_PROGRESS", null, 5))));
+
+        TicketResponse updated = service.assignUser(10, 5, null, null);
+
+        assertThat(updated.getIddrimsoftuser()).isEqualTo(5);
+        assertThat(updated.getIdticketstatus()).isEqualTo(2);
+        verifyNoInteractions(ticketSupportRepository, userRepository);
+        verify(eventPublisher).publishEvent(new TicketChangedEvent(TicketChangedEvent.Type.ASSIGNED, updated, 1, null));
+    }
+
+    @Test
+    void claimNext_assigns_the_claimed_ticket_and_publishes_ASSIGNED() {
+        when(userRepository.existsById(5)).thenReturn(true);
+        when(ticketJdbcRepository.claimNext(1, null, 5, 2))
+                .thenReturn(Optional.of(transition(response(10, 2, "IN_PROGRESS", null, 5))));
+
+        TicketResponse claimed = service.claimNext(5, null).orElseThrow();
+
+        assertThat(claimed.getIdtickets()).isEqualTo(10);
+        verify(eventPublisher).publishEvent(new TicketChangedEvent(TicketChangedEvent.Type.ASSIGNED, claimed, 1, null));
+    }
 
-        TicketSupport updated = service.assignUser(10, 5);
+    @Test
+    void claimNext_is_empty_when_no_ticket_is_free() {
+        when(userRepository.existsById(5)).thenReturn(true);
+        when(ticketJdbcRepository.claimNext(1, 7, 5, 2)).thenReturn(Optional.empty());
+
+        assertThat(service.claimNext(5, 7)).isEmpty();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void assignUser_reports_missing_user_when_ticket_exists() {
+        when(ticketStatusService.findById(2)).thenReturn(Optional.of(statusInProgress));
+        when(ticketJdbcRepository.assignUser(10, 99, 2, Guard.NONE)).thenReturn(Optional.empty());
+        when(ticketJdbcRepository.findCurrentState(10)).thenReturn(Optional.of(new TicketJdbcRepository.CurrentState(1, null, 0)));
 
-        assertThat(updated.getDrimsoftUser()).isNotNull();
-        assertThat(updated.getDrimsoftUser().getIdUser()).isEqualTo(5);
-        assertThat(updated.getStatus()).isNotNull();
-        assertThat(updated.getStatus().getIdTicketStatus()).isEqualTo(2);
+        assertThatThrownBy(() -> service.assignUser(10, 99, null, null))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Usuario");
     }
 
     @Test
     void markAsRead_moves_to_IN_PROGRESS_and_optionally_sets_user() {
-        TicketSupport existing = new TicketSupport();
-        existing.setIdTickets(11);
-        when(ticketSupportRepository.findById(11)).thenReturn(Optional.of(existing));
         when(ticketStatusService.findById(2)).thenReturn(Optional.of(statusInProgress));
-        when(ticketSupportRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(ticketJdbcRepository.markAsRead(11, null, 2, Guard.NONE))
+                .thenReturn(Optional.of(transition(response(11, 2, "IN_PROGRESS", null, null))));
 
-        TicketSupport updated = service.markAsRead(11, null);
+        TicketResponse updated = service.markAsRead(11, null, null, null);
 
-        assertThat(updated.getStatus()).isNotNull();
-        assertThat(updated.getStatus().getIdTicketStatus()).isEqualTo(2);
-        assertThat(updated.getDrimsoftUser()).isNull();
+        assertThat(updated.getIdticketstatus()).isEqualTo(2);
+        assertThat(updated.getIddrimsoftuser()).isNull();
     }
 
     @Test
     void updateAnswer_sets_answer_and_moves_to_ANSWERED() {
-        TicketSupport existing = new TicketSupport();
-        existing.setIdTickets(12);
-        when(ticketSupportRepository.findById(12)).thenReturn(Optional.of(existing));
         when(ticketStatusService.findById(3)).thenReturn(Optional.of(statusAnswered));
-        when(ticketSupportRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(ticketJdbcRepository.updateAnswer(12, "Solución aplicada", null, 3, Guard.NONE))
+                .thenReturn(Optional.of(transition(response(12, 3, "ANSWERED", "Solución aplicada", null))));
 
-        TicketSupport updated = service.updateAnswer(12, "Solución aplicada", null);
+        TicketResponse updated = service.updateAnswer(12, "Solución aplicada", null, null, null);
 
         assertThat(updated.getAnswer()).isEqualTo("Solución aplicada");
-        assertThat(updated.getStatus()).isNotNull();
-        assertThat(updated.getStatus().getIdTicketStatus()).isEqualTo(3);
+        assertThat(updated.getIdticketstatus()).isEqualTo(3);
     }
 
     @Test
     void updateStatus_sets_status_to_provided_id() {
-        TicketSupport existing = new TicketSupport();
-        existing.setIdTickets(13);
-        when(ticketSupportRepository.findById(13)).thenReturn(Optional.of(existing));
         when(ticketStatusService.findById(4)).thenReturn(Optional.of(new TicketStatus() {{ setIdTicketStatus(4); setName("CLOSED"); }}));
-        when(ticketSupportRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(ticketJdbcRepository.updateStatus(13, 4, Guard.NONE))
+                .thenReturn(Optional.of(transition(response(13, 4, "CLOSED", null, null))));
+
+        TicketResponse updated = service.updateStatus(13, 4, null, null);
+        assertThat(updated.getIdticketstatus()).isEqualTo(4);
+    }
+
+    @Test
+    void updateStatus_rejects_unknown_status_without_touching_the_database() {
+        when(ticketStatusService.findById(42)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.updateStatus(13, 42, null, null))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verifyNoInteractions(ticketJdbcRepository);
+    }
+
+    @Test
+    void updateStatus_conflicts_when_expected_status_does_not_match() {
+        when(ticketStatusService.findById(3)).thenReturn(Optional.of(statusAnswered));
+        when(ticketJdbcRepository.updateStatus(14, 3, new Guard(1, null))).thenReturn(Optional.empty());
+        when(ticketJdbcRepository.findCurrentState(14)).thenReturn(Optional.of(new TicketJdbcRepository.CurrentState(2, null, 0)));
+
+        assertThatThrownBy(() -> service.updateStatus(14, 3, 1, null))
+                .isInstanceOf(TicketStatusConflictException.class);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void updateStatus_reports_stale_version_before_status() {
+        when(ticketStatusService.findById(3)).thenReturn(Optional.of(statusAnswered));
+        when(ticketJdbcRepository.updateStatus(16, 3, new Guard(2, 4L))).thenReturn(Optional.empty());
+        when(ticketJdbcRepository.findCurrentState(16)).thenReturn(Optional.of(new TicketJdbcRepository.CurrentState(1, null, 5)));
+
+        assertThatThrownBy(() -> service.updateStatus(16, 3, 2, 4L))
+                .isInstanceOf(TicketVersionConflictException.class);
+    }
+
+    @Test
+    void updateStatus_reports_missing_ticket() {
+        when(ticketStatusService.findById(3)).thenReturn(Optional.of(statusAnswered));
+        when(ticketJdbcRepository.updateStatus(15, 3, Guard.NONE)).thenReturn(Optional.empty());
+        when(ticketJdbcRepository.findCurrentState(15)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.updateStatus(15, 3, null, null))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Ticket");
+    }
+
+    private static TicketJdbcRepository.Transition transition(TicketResponse ticket) {
+        return new TicketJdbcRepository.Transition(ticket, new TicketJdbcRepository.CurrentState(1, null, 0));
+    }
 
-        TicketSupport updated = service.updateStatus(13, 4);
-        assertThat(updated.getStatus()).isNotNull();
-        assertThat(updated.getStatus().getIdTicketStatus()).isEqualTo(4);
+    private static TicketResponse response(int id, int statusId, String statusName, String answer, Integer userId) {
+        return new TicketResponse(id, 123, statusId, statusName, "Titulo", "Desc", answer, userId, null, 0L);
     }
 }
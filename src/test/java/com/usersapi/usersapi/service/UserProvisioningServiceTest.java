@@ -0,0 +1,150 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.client.SupabaseAuthClient;
+import com.usersapi.usersapi.dto.UserProvisionRequest;
+import com.usersapi.usersapi.dto.UserProvisionResult;
+import com.usersapi.usersapi.dto.UserProvisionResult.Outcome;
+import com.usersapi.usersapi.event.UserRoleChangedEvent;
+import com.usersapi.usersapi.model.Role;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.repository.UserBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserProvisioningServiceTest {
+
+    @Mock
+    private SupabaseAuthClient supabaseAuthClient;
+    @Mock
+    private UserBatchRepository userBatchRepository;
+    @Mock
+    private ReferenceDataService referenceDataService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private UserProvisioningService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserProvisioningService(supabaseAuthClient, userBatchRepository, referenceDataService,
+                eventPublisher, Schedulers.immediate(), 10, 4, 500, Duration.ofMillis(50));
+    }
+
+    @Test
+    void provision_reports_one_outcome_per_row_with_its_request_index() {
+        UUID created = UUID.randomUUID();
+        when(supabaseAuthClient.adminCreateUser(eq("ok@drimsoft.com"), any(), any()))
+                .thenReturn(Mono.just(Map.of("id", created.toString())));
+        when(supabaseAuthClient.adminCreateUser(eq("dup@drimsoft.com"), any(), any()))
+                .thenReturn(Mono.error(new RuntimeException("422 email_exists")));
+        when(userBatchRepository.insertAll(anyList())).thenAnswer(inv -> {
+            List<UserDrimsoft> rows = inv.getArgument(0);
+            rows.forEach(u -> u.setIdUser(101));
+            return rows;
+        });
+
+        List<UserProvisionResult> results = service.provision(List.of(
+                request("ok@drimsoft.com"), request(null), request("dup@drimsoft.com"))).collectList().block();
+        results.sort(Comparator.comparingInt(UserProvisionResult::getIndex));
+
+        assertThat(results).extracting(UserProvisionResult::getOutcome)
+                .containsExactly(Outcome.CREATED, Outcome.INVALID, Outcome.SUPABASE_ERROR);
+        assertThat(results.get(0).getIduser()).isEqualTo(101);
+        assertThat(results.get(0).getSupabaseuserid()).isEqualTo(created);
+        // El mensaje original (cuerpo de Supabase) no llega al cliente
+        assertThat(results.get(2).getError()).doesNotContain("email_exists");
+        verify(userBatchRepository, times(1)).insertAll(argThat(rows -> rows.size() == 1));
+    }
+
+    @Test
+    void created_users_with_a_role_are_replicated_once_their_batch_is_saved() {
+        UUID created = UUID.randomUUID();
+        Role admin = new Role();
+        admin.setIdRole(1);
+        admin.setName("ADMIN");
+        when(referenceDataService.findRole(1)).thenReturn(Optional.of(admin));
+        when(supabaseAuthClient.adminCreateUser(any(), any(), any()))
+                .thenReturn(Mono.just(Map.of("id", created.toString())));
+        when(userBatchRepository.insertAll(anyList())).thenAnswer(inv -> {
+            List<UserDrimsoft> rows = inv.getArgument(0);
+            rows.forEach(u -> u.setIdUser(101));
+            return rows;
+        });
+        UserProvisionRequest withRole = request("admin@drimsoft.com");
+        withRole.setIdrole(1);
+
+        service.provision(List.of(withRole)).blockLast(Duration.ofSeconds(5));
+
+        verify(eventPublisher).publishEvent(new UserRoleChangedEvent(101, created, "ADMIN"));
+    }
+
+    @Test
+    void a_failed_batch_rolls_back_alone_and_results_say_which_batch_was_kept() {
+        UserProvisioningService oneRowBatches = new UserProvisioningService(supabaseAuthClient, userBatchRepository,
+                referenceDataService, eventPublisher, Schedulers.immediate(), 10, 1, 1, Duration.ofMillis(50));
+        when(supabaseAuthClient.adminCreateUser(any(), any(), any()))
+                .thenAnswer(inv -> Mono.just(Map.of("id", UUID.randomUUID().toString())));
+        when(userBatchRepository.insertAll(anyList()))
+                .thenAnswer(inv -> {
+                    List<UserDrimsoft> rows = inv.getArgument(0);
+                    rows.forEach(u -> u.setIdUser(101));
+                    return rows;
+                })
+                .thenThrow(new RuntimeException("connection reset"));
+
+        List<UserProvisionResult> results = oneRowBatches.provision(List.of(
+                request("first@drimsoft.com"), request("second@drimsoft.com"))).collectList().block();
+        results.sort(Comparator.comparingInt(UserProvisionResult::getIndex));
+
+        assertThat(results).extracting(UserProvisionResult::getOutcome)
+                .containsExactly(Outcome.CREATED, Outcome.DB_ERROR);
+        assertThat(results).extracting(UserProvisionResult::getBatch).containsExactly(0, 1);
+    }
+
+    @Test
+    void failed_rows_are_emitted_without_waiting_for_the_rest_of_the_batch() {
+        when(supabaseAuthClient.adminCreateUser(eq("slow@drimsoft.com"), any(), any())).thenReturn(Mono.never());
+
+        UserProvisionResult first = service.provision(List.of(request("slow@drimsoft.com"), request(null)))
+                .blockFirst(Duration.ofSeconds(5));
+
+        assertThat(first.getIndex()).isEqualTo(1);
+        assertThat(first.getOutcome()).isEqualTo(Outcome.INVALID);
+        assertThat(first.getBatch()).isNull();
+    }
+
+    @Test
+    void provision_rejects_oversized_batches() {
+        List<UserProvisionRequest> tooMany = java.util.Collections.nCopies(11, request("a@drimsoft.com"));
+
+        assertThatThrownBy(() -> service.provision(tooMany)).isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(supabaseAuthClient);
+    }
+
+    private UserProvisionRequest request(String email) {
+        UserProvisionRequest r = new UserProvisionRequest();
+        r.setEmail(email);
+        r.setPassword("secret123");
+        r.setName("Agent");
+        return r;
+    }
+}
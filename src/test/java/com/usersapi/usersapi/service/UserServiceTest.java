@@ -0,0 +1,172 @@
+package com.usersapi.usersapi.service;
+
+import com.usersapi.usersapi.dto.PageResponse;
+import com.usersapi.usersapi.dto.UserSummaryDto;
+import com.usersapi.usersapi.event.UserRoleChangedEvent;
+import com.usersapi.usersapi.model.Role;
+import com.usersapi.usersapi.model.UserDrimsoft;
+import com.usersapi.usersapi.model.UserStatus;
+import com.usersapi.usersapi.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private ReferenceDataService referenceDataService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private UserService service;
+
+    private final UUID supabaseId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        UserIdentityCache cache = new UserIdentityCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        service = new UserService(userRepository, referenceDataService, cache, eventPublisher);
+    }
+
+    @Test
+    void findBySupabaseUserId_hits_database_once_and_serves_both_keys_from_cache() {
+        when(userRepository.findBySupabaseUserId(supabaseId)).thenReturn(Optional.of(user(7, "Agent")));
+
+        assertThat(service.findBySupabaseUserId(supabaseId)).isPresent();
+        assertThat(service.findBySupabaseUserId(supabaseId)).isPresent();
+        assertThat(service.findById(7)).map(UserDrimsoft::getName).contains("Agent");
+
+        verify(userRepository, times(1)).findBySupabaseUserId(supabaseId);
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void updateRole_writes_through_to_cache() {
+        when(userRepository.findBySupabaseUserId(supabaseId)).thenReturn(Optional.of(user(7, "Agent")));
+        service.findBySupabaseUserId(supabaseId);
+
+        Role admin = new Role();
+        admin.setIdRole(1);
+        admin.setName("ADMIN");
+        when(userRepository.findById(7)).thenReturn(Optional.of(user(7, "Agent")));
+        when(referenceDataService.findRole(1)).thenReturn(Optional.of(admin));
+        when(userRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        service.updateRole(7, 1);
+
+        assertThat(service.findBySupabaseUserId(supabaseId))
+                .map(u -> u.getRole().getName())
+                .contains("ADMIN");
+        verify(userRepository, times(1)).findBySupabaseUserId(supabaseId);
+        verify(eventPublisher).publishEvent(new UserRoleChangedEvent(7, supabaseId, "ADMIN"));
+    }
+
+    @Test
+    void deleting_a_user_publishes_that_it_no_longer_has_a_role() {
+        UserDrimsoft user = user(7, "Agent");
+        Role admin = new Role();
+        admin.setIdRole(1);
+        admin.setName("ADMIN");
+        user.setRole(admin);
+        UserStatus deleted = new UserStatus();
+        deleted.setIdUserStatus(UserService.STATUS_DELETED);
+        when(userRepository.findById(7)).thenReturn(Optional.of(user));
+        when(referenceDataService.findUserStatus(UserService.STATUS_DELETED)).thenReturn(Optional.of(deleted));
+        when(userRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        service.updateStatus(7, UserService.STATUS_DELETED);
+
+        verify(eventPublisher).publishEvent(new UserRoleChangedEvent(7, supabaseId, null));
+    }
+
+    @Test
+    void changes_to_a_returned_user_are_not_visible_until_saved() {
+        when(userRepository.findBySupabaseUserId(supabaseId)).thenReturn(Optional.of(user(7, "Agent")));
+        when(userRepository.save(any())).thenThrow(new IllegalStateException("constraint"));
+        Role admin = new Role();
+        admin.setIdRole(1);
+        admin.setName("ADMIN");
+
+        UserDrimsoft editing = service.findBySupabaseUserId(supabaseId).orElseThrow();
+        editing.setRole(admin);
+        assertThat(service.findById(7)).map(UserDrimsoft::getRole).isEmpty();
+
+        assertThatThrownBy(() -> service.save(editing)).isInstanceOf(IllegalStateException.class);
+        when(userRepository.findById(7)).thenReturn(Optional.of(user(7, "Agent")));
+        assertThat(service.findById(7)).map(UserDrimsoft::getRole).isEmpty();
+    }
+
+    @Test
+    void findPage_excludes_deleted_users_by_default_and_maps_sort_to_joined_paths() {
+        when(userRepository.findSummaries(eq(2), isNull(), eq(UserService.STATUS_DELETED), any()))
+                .thenReturn(new PageImpl<>(List.of(new UserSummaryDto(7, "Agent", supabaseId, 2, "AGENT", 1, "ACTIVE"))));
+
+        PageResponse<UserSummaryDto> page = service.findPage(2, null, false, 0, 50, "role,desc");
+
+        assertThat(page.getItems()).extracting(u -> u.getRole().getName()).containsExactly("AGENT");
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepository).findSummaries(eq(2), isNull(), eq(UserService.STATUS_DELETED), pageable.capture());
+        assertThat(pageable.getValue().getSort())
+                .isEqualTo(Sort.by(Sort.Direction.DESC, "r.name").and(Sort.by("idUser")));
+    }
+
+    @Test
+    void resolve_serves_cached_users_and_loads_the_rest_in_one_query() {
+        when(userRepository.findBySupabaseUserId(supabaseId)).thenReturn(Optional.of(user(7, "Agent")));
+        service.findBySupabaseUserId(supabaseId);
+
+        UUID other = UUID.randomUUID();
+        UserDrimsoft loaded = user(8, "Admin");
+        loaded.setSupabaseUserId(other);
+        when(userRepository.findAllByIdsOrSupabaseUserIds(Set.of(9), Set.of(other))).thenReturn(List.of(loaded));
+
+        Map<String, UserSummaryDto> resolved = service.resolve(List.of(7, 9), List.of(other));
+
+        assertThat(resolved).containsOnlyKeys("7", other.toString());
+        assertThat(resolved.get(other.toString()).getName()).isEqualTo("Admin");
+        verify(userRepository, times(1)).findAllByIdsOrSupabaseUserIds(any(), any());
+        // El cargado queda en caché para la siguiente resolución
+        assertThat(service.resolve(List.of(8), List.of())).containsOnlyKeys("8");
+        verifyNoMoreInteractions(userRepository);
+    }
+
+    @Test
+    void findPage_rejects_unknown_sort_fields() {
+        assertThatThrownBy(() -> service.findPage(null, null, false, 0, 50, "supabaseUserId"))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(userRepository);
+    }
+
+    private UserDrimsoft user(Integer id, String name) {
+        UserDrimsoft user = new UserDrimsoft();
+        user.setIdUser(id);
+        user.setName(name);
+        user.setSupabaseUserId(supabaseId);
+        return user;
+    }
+}
@@ -0,0 +1,224 @@
+package com.usersapi.usersapi.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Supabase Auth local para tests y pruebas de carga (JDK HttpServer, sin dependencias).
+ * Cubre /auth/v1/signup, /auth/v1/token, /auth/v1/user (GET/PUT) y /auth/v1/admin/users.
+ * Los tokens se firman con HS256 y el mismo secreto que usa la aplicación, así que
+ * el modo local de /auth/me los acepta. Latencia y tasa de errores 503 configurables.
+ */
+public class SupabaseAuthStub implements AutoCloseable {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String jwtSecret;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, UUID> usersByEmail = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration jitter = Duration.ZERO;
+    private volatile double errorRate;
+
+    public SupabaseAuthStub(String jwtSecret) throws IOException {
+        this.jwtSecret = jwtSecret;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+        server.createContext("/auth/v1/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public SupabaseAuthStub latency(Duration latency, Duration jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+        return this;
+    }
+
+    public SupabaseAuthStub errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * Registra un usuario existente (como si ya hubiese hecho signup).
+     */
+    public UUID register(String email) {
+        return usersByEmail.computeIfAbsent(email, e -> UUID.randomUUID());
+    }
+
+    public String issueToken(String email, Duration ttl) {
+        return sign(register(email), email, ttl);
+    }
+
+    /**
+     * Llamadas recibidas por "METODO /ruta".
+     */
+    public int calls(String route) {
+        AtomicInteger count = calls.get(route);
+        return count != null ? count.get() : 0;
+    }
+
+    public void resetCalls() {
+        calls.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String route = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+            calls.computeIfAbsent(route, r -> new AtomicInteger()).incrementAndGet();
+            simulateLatency();
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, 503, Map.of("msg", "Service Unavailable"));
+                return;
+            }
+
+            switch (route) {
+                case "POST /auth/v1/signup", "POST /auth/v1/admin/users" -> {
+                    Map<?, ?> body = mapper.readValue(exchange.getRequestBody(), Map.class);
+                    String email = (String) body.get("email");
+                    respond(exchange, 200, user(register(email), email));
+                }
+                case "POST /auth/v1/token" -> {
+                    Map<?, ?> body = mapper.readValue(exchange.getRequestBody(), Map.class);
+                    String email = (String) body.get("email");
+                    String query = exchange.getRequestURI().getQuery();
+                    if (query == null || !query.contains("grant_type=password")
+                            || email == null || !usersByEmail.containsKey(email)) {
+                        respond(exchange, 400, Map.of("error", "invalid_grant", "error_description", "Invalid login credentials"));
+                        return;
+                    }
+                    UUID id = usersByEmail.get(email);
+                    Map<String, Object> token = new HashMap<>();
+                    token.put("access_token", sign(id, email, Duration.ofHours(1)));
+                    token.put("token_type", "bearer");
+                    token.put("expires_in", 3600);
+                    token.put("refresh_token", UUID.randomUUID().toString());
+                    token.put("user", user(id, email));
+                    respond(exchange, 200, token);
+                }
+                case "GET /auth/v1/user", "PUT /auth/v1/user" -> {
+                    JWTClaimsSet claims = verify(exchange.getRequestHeaders().getFirst("Authorization"));
+                    if (claims == null) {
+                        respond(exchange, 401, Map.of("msg", "invalid JWT"));
+                        return;
+                    }
+                    respond(exchange, 200, user(UUID.fromString(claims.getSubject()), (String) claims.getClaim("email")));
+                }
+                default -> respond(exchange, 404, Map.of("msg", "Not found"));
+            }
+        }
+    }
+
+    private void simulateLatency() {
+        long millis = latency.toMillis();
+        if (!jitter.isZero()) {
+            millis += ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        }
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Map<String, Object> user(UUID id, String email) {
+        Map<String, Object> user = new HashMap<>();
+        user.put("id", id.toString());
+        user.put("aud", "authenticated");
+        user.put("role", "authenticated");
+        user.put("email", email);
+        user.put("phone", "");
+        user.put("app_metadata", Map.of("provider", "email", "providers", List.of("email")));
+        user.put("user_metadata", Map.of("email_verified", true));
+        user.put("is_anonymous", false);
+        return user;
+    }
+
+    private String sign(UUID id, String email, Duration ttl) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(id.toString())
+                .audience("authenticated")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(ttl)))
+                .claim("email", email)
+                .claim("phone", "")
+                .claim("role", "authenticated")
+                .claim("app_metadata", Map.of("provider", "email", "providers", List.of("email")))
+                .claim("user_metadata", Map.of("email_verified", true))
+                .claim("is_anonymous", false)
+                .build();
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+            jwt.sign(new MACSigner(jwtSecret.getBytes(StandardCharsets.UTF_8)));
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JWTClaimsSet verify(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            SignedJWT jwt = SignedJWT.parse(authorization.substring("Bearer ".length()));
+            if (!jwt.verify(new MACVerifier(jwtSecret.getBytes(StandardCharsets.UTF_8)))) {
+                return null;
+            }
+            JWTClaimsSet claims = jwt.getJWTClaimsSet();
+            return claims.getExpirationTime().after(new Date()) ? claims : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}